@@ -0,0 +1,146 @@
+package com.discount.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+// Sends read-only transactions to a replica that is reachable and within the staleness tolerance,
+// everything else to the primary. Needs to sit behind a LazyConnectionDataSourceProxy so that the
+// transaction's read-only flag is known by the time a physical connection is requested.
+public final class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    private static final Logger log = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+    private static final String PRIMARY = "primary";
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final Duration maxReplicaLag;
+    private final String replicaLagQuery;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    public ReadWriteRoutingDataSource(DataSource primary, List<DataSource> replicas,
+                                      Duration maxReplicaLag, String replicaLagQuery) {
+        this.primary = primary;
+        this.replicas = IntStream.range(0, replicas.size())
+                .mapToObj(i -> new Replica("replica-" + i, replicas.get(i)))
+                .toList();
+        this.maxReplicaLag = maxReplicaLag;
+        this.replicaLagQuery = replicaLagQuery == null || replicaLagQuery.isBlank() ? null : replicaLagQuery;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        this.replicas.forEach(replica -> targets.put(replica.key, replica.dataSource));
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Replica replica = selectReplica();
+        return replica != null ? replica.key : PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Replica replica = selectReplica();
+        if (replica == null) {
+            return primary.getConnection();
+        }
+        try {
+            return replica.dataSource.getConnection();
+        } catch (SQLException e) {
+            // Fall back to the primary and keep the replica out of rotation until the next check
+            replica.markUnusable("connection failed: " + e.getMessage());
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection();
+    }
+
+    public void refreshReplicaState() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection()) {
+                if (!connection.isValid(2)) {
+                    replica.markUnusable("connection is not valid");
+                    continue;
+                }
+                long lagSeconds = measureLagSeconds(connection);
+                if (lagSeconds > maxReplicaLag.toSeconds()) {
+                    replica.markUnusable("lagging " + lagSeconds + "s behind the primary");
+                } else {
+                    replica.markUsable();
+                }
+            } catch (SQLException e) {
+                replica.markUnusable("health check failed: " + e.getMessage());
+            }
+        }
+    }
+
+    public boolean isReplicaUsable(int index) {
+        return replicas.get(index).usable;
+    }
+
+    private long measureLagSeconds(Connection connection) throws SQLException {
+        if (replicaLagQuery == null) {
+            return 0;
+        }
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(replicaLagQuery)) {
+            return resultSet.next() ? resultSet.getLong(1) : Long.MAX_VALUE;
+        }
+    }
+
+    private Replica selectReplica() {
+        if (replicas.isEmpty() || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return null;
+        }
+        int start = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica.usable) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    private static final class Replica {
+        private final String key;
+        private final DataSource dataSource;
+        private volatile boolean usable = true;
+
+        Replica(String key, DataSource dataSource) {
+            this.key = key;
+            this.dataSource = dataSource;
+        }
+
+        void markUsable() {
+            if (!usable) {
+                log.info("Routing reads to {} again", key);
+            }
+            usable = true;
+        }
+
+        void markUnusable(String reason) {
+            if (usable) {
+                log.warn("Routing reads away from {}: {}", key, reason);
+            }
+            usable = false;
+        }
+    }
+}
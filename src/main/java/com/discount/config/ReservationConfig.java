@@ -0,0 +1,19 @@
+package com.discount.config;
+
+import com.discount.service.HashedTimerWheel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class ReservationConfig {
+
+    @Bean(destroyMethod = "close")
+    public HashedTimerWheel reservationExpiryWheel(
+            @Value("${coupon.reservation.tick:100ms}") Duration tick,
+            @Value("${coupon.reservation.wheel-size:512}") int wheelSize) {
+        return new HashedTimerWheel("reservation-expiry", tick, wheelSize);
+    }
+}
@@ -0,0 +1,60 @@
+package com.discount.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+@Configuration
+@ConditionalOnProperty(name = "coupon.datasource.routing.enabled", havingValue = "true")
+@EnableConfigurationProperties(ReplicaRoutingProperties.class)
+public class RoutingDataSourceConfig {
+
+    @Bean
+    public ReadWriteRoutingDataSource readWriteRoutingDataSource(DataSourceProperties primaryProperties,
+                                                                 ReplicaRoutingProperties routingProperties) {
+        DataSource primary = primaryProperties.initializeDataSourceBuilder().build();
+        List<DataSource> replicas = routingProperties.replicas().stream()
+                .map(replica -> (DataSource) DataSourceBuilder.create()
+                        .driverClassName(primaryProperties.determineDriverClassName())
+                        .url(replica.url())
+                        .username(replica.username() != null ? replica.username() : primaryProperties.determineUsername())
+                        .password(replica.password() != null ? replica.password() : primaryProperties.determinePassword())
+                        .build())
+                .toList();
+        return new ReadWriteRoutingDataSource(primary, replicas,
+                routingProperties.maxReplicaLag(), routingProperties.replicaLagQuery());
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource readWriteRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(readWriteRoutingDataSource);
+    }
+
+    @Bean
+    public ReplicaHealthMonitor replicaHealthMonitor(ReadWriteRoutingDataSource readWriteRoutingDataSource) {
+        return new ReplicaHealthMonitor(readWriteRoutingDataSource);
+    }
+
+    public static class ReplicaHealthMonitor {
+        private final ReadWriteRoutingDataSource dataSource;
+
+        public ReplicaHealthMonitor(ReadWriteRoutingDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        @Scheduled(fixedDelayString = "${coupon.datasource.replica-check-interval-ms:5000}")
+        public void checkReplicas() {
+            dataSource.refreshReplicaState();
+        }
+    }
+}
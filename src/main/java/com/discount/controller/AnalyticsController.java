@@ -0,0 +1,29 @@
+package com.discount.controller;
+
+import com.discount.model.CouponUsageRollup.Granularity;
+import com.discount.service.UsageRollupService;
+import com.discount.service.UsageRollupService.UsageAnalytics;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+
+@RestController
+@RequestMapping("/api/coupons/{code}/analytics")
+public class AnalyticsController {
+    private final UsageRollupService usageRollupService;
+
+    public AnalyticsController(UsageRollupService usageRollupService) {
+        this.usageRollupService = usageRollupService;
+    }
+
+    @GetMapping
+    public ResponseEntity<UsageAnalytics> getUsageAnalytics(
+            @PathVariable String code,
+            @RequestParam(defaultValue = "HOUR") Granularity granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+        return ResponseEntity.ok(usageRollupService.getUsageAnalytics(code, granularity, from, to));
+    }
+}
@@ -1,15 +1,26 @@
 package com.discount.controller;
 
+import com.discount.dto.CouponView;
+import com.discount.model.CountryMode;
 import com.discount.model.Coupon;
 import com.discount.service.CouponService;
+import com.discount.service.CouponVersionCache;
 import jakarta.servlet.http.HttpServletRequest;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.AssertTrue;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/coupons")
@@ -21,13 +32,16 @@ public class CouponController {
     }
 
     @PostMapping
-    public ResponseEntity<Coupon> createCoupon(@Valid @RequestBody CreateCouponRequest request) {
+    public ResponseEntity<CouponView> createCoupon(@Valid @RequestBody CreateCouponRequest request) {
         Coupon coupon = couponService.createCoupon(
             request.code(),
             request.maxUses(),
-            request.country()
+            request.countryMode() != null ? request.countryMode() : CountryMode.ALLOW,
+            request.countryCodes(),
+            request.validFrom(),
+            request.validUntil()
         );
-        return ResponseEntity.ok(coupon);
+        return ResponseEntity.ok(CouponView.of(coupon));
     }
 
     @PostMapping("/{code}/use")
@@ -43,18 +57,86 @@ public class CouponController {
     }
 
     @GetMapping
-    public ResponseEntity<List<Coupon>> getAllCoupons() {
+    public ResponseEntity<List<CouponView>> getAllCoupons(WebRequest request) {
+        if (request.checkNotModified(couponService.getCouponsETag())) {
+            return null;
+        }
         return ResponseEntity.ok(couponService.getAllCoupons());
     }
 
     @GetMapping("/{code}")
-    public ResponseEntity<Coupon> getCouponByCode(@PathVariable String code) {
-        return ResponseEntity.ok(couponService.getCouponByCode(code));
+    public ResponseEntity<CouponView> getCouponByCode(@PathVariable String code, WebRequest request) {
+        // A cached version answers a matching If-None-Match without loading the coupon. Only a match
+        // is answered from the cache; checkNotModified would put a stale tag on the fresh response.
+        Optional<String> cachedETag = couponService.findCachedETag(code);
+        if (cachedETag.isPresent() && ifNoneMatchContains(request, cachedETag.get())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(cachedETag.get()).build();
+        }
+        CouponView coupon = couponService.getCouponByCode(code);
+        if (coupon.id() == null || coupon.version() == null) {
+            return ResponseEntity.ok(coupon);
+        }
+        String eTag = CouponVersionCache.eTag(coupon.id(), coupon.version());
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(eTag).body(coupon);
+    }
+
+    // Weak comparison, as If-None-Match requires
+    private static boolean ifNoneMatchContains(WebRequest request, String eTag) {
+        String[] headers = request.getHeaderValues(HttpHeaders.IF_NONE_MATCH);
+        if (headers == null) {
+            return false;
+        }
+        for (String header : headers) {
+            for (String candidate : header.split(",")) {
+                String tag = candidate.trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals(eTag)) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
     public record CreateCouponRequest(
         @NotBlank String code,
         @Min(1) Integer maxUses,
-        @NotBlank String country
-    ) {}
+        String country,
+        List<String> countries,
+        CountryMode countryMode,
+        LocalDateTime validFrom,
+        LocalDateTime validUntil
+    ) {
+        public CreateCouponRequest(String code, Integer maxUses, String country) {
+            this(code, maxUses, country, null, null);
+        }
+
+        public CreateCouponRequest(String code, Integer maxUses, String country,
+                                   LocalDateTime validFrom, LocalDateTime validUntil) {
+            this(code, maxUses, country, null, null, validFrom, validUntil);
+        }
+
+        @JsonIgnore
+        @AssertTrue(message = "country or countries must be given")
+        public boolean isCountryGiven() {
+            return !countryCodes().isEmpty();
+        }
+
+        // The single country and the list may be combined
+        public List<String> countryCodes() {
+            List<String> codes = new ArrayList<>();
+            if (country != null && !country.isBlank()) {
+                codes.add(country);
+            }
+            if (countries != null) {
+                countries.stream().filter(code -> code != null && !code.isBlank()).forEach(codes::add);
+            }
+            return codes;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,23 @@
+package com.discount.controller;
+
+import com.discount.service.RemainingUsesHub;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/remaining-uses")
+public class RemainingUsesController {
+    private final RemainingUsesHub remainingUsesHub;
+
+    public RemainingUsesController(RemainingUsesHub remainingUsesHub) {
+        this.remainingUsesHub = remainingUsesHub;
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestParam List<String> codes) {
+        return remainingUsesHub.subscribe(codes);
+    }
+}
@@ -0,0 +1,50 @@
+package com.discount.controller;
+
+import com.discount.model.CouponReservation;
+import com.discount.service.ReservationService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+
+@RestController
+@RequestMapping("/api/coupons/{code}/reservations")
+public class ReservationController {
+    private final ReservationService reservationService;
+
+    public ReservationController(ReservationService reservationService) {
+        this.reservationService = reservationService;
+    }
+
+    @PostMapping
+    public ResponseEntity<ReservationResponse> reserve(
+            @PathVariable String code,
+            @RequestHeader("X-User-Id") String userId,
+            @RequestHeader(value = "X-Forwarded-For", required = false) String forwardedFor,
+            @RequestHeader(value = "X-Country", required = false) String country,
+            HttpServletRequest request) {
+        String ipAddress = forwardedFor != null ? forwardedFor.split(",")[0].trim() : request.getRemoteAddr();
+        CouponReservation reservation = reservationService.reserve(code, userId, ipAddress, country);
+        return ResponseEntity.ok(new ReservationResponse(
+            reservation.getId(),
+            code.toUpperCase(),
+            reservation.getUserId(),
+            reservation.getExpiresAt()
+        ));
+    }
+
+    @PostMapping("/{reservationId}/confirm")
+    public ResponseEntity<Void> confirm(@PathVariable String code, @PathVariable Long reservationId) {
+        reservationService.confirm(code, reservationId);
+        return ResponseEntity.ok().build();
+    }
+
+    @DeleteMapping("/{reservationId}")
+    public ResponseEntity<Void> release(@PathVariable String code, @PathVariable Long reservationId) {
+        reservationService.release(code, reservationId);
+        return ResponseEntity.ok().build();
+    }
+
+    public record ReservationResponse(Long id, String code, String userId, Instant expiresAt) {}
+}
@@ -0,0 +1,31 @@
+package com.discount.controller;
+
+import com.discount.service.SnapshotService;
+import com.discount.service.SnapshotService.SnapshotInfo;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+@RestController
+@RequestMapping("/api/admin/snapshots")
+public class SnapshotController {
+    private static final DateTimeFormatter DEFAULT_NAME = DateTimeFormatter.ofPattern("'coupons-'yyyyMMdd-HHmmss");
+
+    private final SnapshotService snapshotService;
+
+    public SnapshotController(SnapshotService snapshotService) {
+        this.snapshotService = snapshotService;
+    }
+
+    @PostMapping
+    public ResponseEntity<SnapshotInfo> export(@RequestParam(required = false) String name) {
+        return ResponseEntity.ok(snapshotService.export(name != null ? name : DEFAULT_NAME.format(LocalDateTime.now())));
+    }
+
+    @PostMapping("/{name}/restore")
+    public ResponseEntity<SnapshotInfo> restore(@PathVariable String name) {
+        return ResponseEntity.ok(snapshotService.restore(name));
+    }
+}
@@ -0,0 +1,24 @@
+package com.discount.controller;
+
+import com.discount.dto.UserCouponHistory;
+import com.discount.service.CouponService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/users/{userId}/coupons")
+public class UserCouponController {
+    private final CouponService couponService;
+
+    public UserCouponController(CouponService couponService) {
+        this.couponService = couponService;
+    }
+
+    @GetMapping
+    public ResponseEntity<UserCouponHistory> getUserCouponHistory(
+            @PathVariable String userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(couponService.getUserCouponHistory(userId, cursor, limit));
+    }
+}
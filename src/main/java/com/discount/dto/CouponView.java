@@ -0,0 +1,39 @@
+package com.discount.dto;
+
+import com.discount.model.CountryMode;
+import com.discount.model.CountrySet;
+import com.discount.model.Coupon;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.LocalDateTime;
+
+// Read model of a coupon, selected directly by JPQL constructor expressions. The version is only
+// used for ETags and is not part of the body.
+public record CouponView(Long id, String code, LocalDateTime createdAt, Integer maxUses, Integer currentUses,
+                         Integer reservedUses, String country, CountryMode countryMode, CountrySet countries,
+                         LocalDateTime validFrom, LocalDateTime validUntil, @JsonIgnore Long version) {
+
+    // Same defaults as the entity for rows written before country sets existed
+    public CouponView {
+        if (countryMode == null) {
+            countryMode = CountryMode.ALLOW;
+        }
+        if ((countries == null || countries.isEmpty()) && country != null && !country.isBlank()) {
+            countries = CountrySet.of(country);
+        } else if (countries == null) {
+            countries = CountrySet.empty();
+        }
+    }
+
+    public static CouponView of(Coupon coupon) {
+        return new CouponView(coupon.getId(), coupon.getCode(), coupon.getCreatedAt(), coupon.getMaxUses(),
+                coupon.getCurrentUses(), coupon.getReservedUses(), coupon.getCountry(), coupon.getCountryMode(),
+                coupon.getCountries(), coupon.getValidFrom(), coupon.getValidUntil(), coupon.getVersion());
+    }
+
+    @JsonProperty
+    public boolean available() {
+        return currentUses + reservedUses < maxUses;
+    }
+}
@@ -0,0 +1,6 @@
+package com.discount.dto;
+
+import java.util.List;
+
+// nextCursor is null on the last page
+public record UserCouponHistory(String userId, List<UserCouponUsage> items, String nextCursor) {}
@@ -0,0 +1,5 @@
+package com.discount.dto;
+
+import java.time.LocalDateTime;
+
+public record UserCouponUsage(Long couponId, String code, LocalDateTime usedAt) {}
@@ -20,5 +20,11 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(error, HttpStatus.CONFLICT);
     }
 
+    @ExceptionHandler(ServiceDrainingException.class)
+    public ResponseEntity<ErrorResponse> handleServiceDrainingException(ServiceDrainingException ex) {
+        ErrorResponse error = new ErrorResponse(HttpStatus.SERVICE_UNAVAILABLE.value(), ex.getMessage());
+        return new ResponseEntity<>(error, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     public record ErrorResponse(int status, String message) {}
 } 
\ No newline at end of file
@@ -0,0 +1,11 @@
+package com.discount.exception;
+
+// Thrown for redemptions that arrive while the instance is shutting down; clients should retry
+// against another instance
+public class ServiceDrainingException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public ServiceDrainingException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,40 @@
+package com.discount.model;
+
+import jakarta.persistence.*;
+
+import java.util.Objects;
+
+// Compact usage moved out of coupon_usage_compact together with its coupon
+@Entity
+@Table(name = "coupon_usage_compact_archive")
+public class ArchivedCompactCouponUsage {
+    @EmbeddedId
+    private CompactUsageKey id;
+
+    @Column(name = "used_at", nullable = false)
+    private long usedAt;
+
+    public ArchivedCompactCouponUsage() {
+    }
+
+    public CompactUsageKey getId() {
+        return id;
+    }
+
+    public long getUsedAt() {
+        return usedAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ArchivedCompactCouponUsage that = (ArchivedCompactCouponUsage) o;
+        return Objects.equals(id, that.id) && usedAt == that.usedAt;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, usedAt);
+    }
+}
@@ -0,0 +1,121 @@
+package com.discount.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+// Expired or exhausted coupon moved out of the hot coupon table by the archiver
+@Entity
+@Table(name = "coupon_archive")
+public class ArchivedCoupon {
+    @Id
+    private Long id;
+
+    @Column(unique = true, nullable = false)
+    private String code;
+
+    private LocalDateTime createdAt;
+
+    private Integer maxUses;
+
+    private Integer currentUses;
+
+    private String country;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 8)
+    private CountryMode countryMode;
+
+    @Convert(converter = CountrySetConverter.class)
+    @Column(length = 85)
+    private CountrySet countries;
+
+    private LocalDateTime validFrom;
+
+    private LocalDateTime validUntil;
+
+    private Long version;
+
+    private LocalDateTime archivedAt;
+
+    public ArchivedCoupon() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public Integer getMaxUses() {
+        return maxUses;
+    }
+
+    public Integer getCurrentUses() {
+        return currentUses;
+    }
+
+    public String getCountry() {
+        return country;
+    }
+
+    public CountryMode getCountryMode() {
+        return countryMode;
+    }
+
+    public CountrySet getCountries() {
+        return countries;
+    }
+
+    public LocalDateTime getValidFrom() {
+        return validFrom;
+    }
+
+    public LocalDateTime getValidUntil() {
+        return validUntil;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public LocalDateTime getArchivedAt() {
+        return archivedAt;
+    }
+
+    // Detached, read-only view in the shape the API already serves
+    public Coupon toCoupon() {
+        Coupon coupon = new Coupon(code, maxUses, country);
+        coupon.setId(id);
+        coupon.setCreatedAt(createdAt);
+        coupon.setCurrentUses(currentUses);
+        coupon.setCountryMode(countryMode);
+        coupon.setCountries(countries);
+        coupon.setValidFrom(validFrom);
+        coupon.setValidUntil(validUntil);
+        coupon.setVersion(version);
+        return coupon;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ArchivedCoupon that = (ArchivedCoupon) o;
+        return Objects.equals(id, that.id) &&
+               Objects.equals(code, that.code) &&
+               Objects.equals(archivedAt, that.archivedAt);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, code, archivedAt);
+    }
+}
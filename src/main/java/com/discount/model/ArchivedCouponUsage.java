@@ -0,0 +1,58 @@
+package com.discount.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+@Entity
+@Table(name = "coupon_usage_archive", indexes = {
+    @Index(name = "idx_coupon_usage_archive_coupon", columnList = "coupon_id")
+})
+public class ArchivedCouponUsage {
+    @Id
+    private Long id;
+
+    @Column(name = "coupon_id", nullable = false)
+    private Long couponId;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    private LocalDateTime usedAt;
+
+    public ArchivedCouponUsage() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getCouponId() {
+        return couponId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public LocalDateTime getUsedAt() {
+        return usedAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ArchivedCouponUsage that = (ArchivedCouponUsage) o;
+        return Objects.equals(id, that.id) &&
+               Objects.equals(couponId, that.couponId) &&
+               Objects.equals(userId, that.userId) &&
+               Objects.equals(usedAt, that.usedAt);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, couponId, userId, usedAt);
+    }
+}
@@ -0,0 +1,45 @@
+package com.discount.model;
+
+import jakarta.persistence.*;
+
+import java.util.Objects;
+
+// Compact redemption record: keyed by (coupon_id, user_hash), with the user id interned in
+// usage_user and the timestamp kept as epoch seconds. Rows are written with a plain INSERT so a
+// duplicate redemption fails on the primary key.
+@Entity
+@Table(name = "coupon_usage_compact", indexes = {
+    // Serves per-user history in used_at order, like idx_coupon_usage_user_used_at
+    @Index(name = "idx_coupon_usage_compact_user_used_at", columnList = "user_hash, used_at, coupon_id")
+})
+public class CompactCouponUsage {
+    @EmbeddedId
+    private CompactUsageKey id;
+
+    @Column(name = "used_at", nullable = false)
+    private long usedAt;
+
+    public CompactCouponUsage() {
+    }
+
+    public CompactUsageKey getId() {
+        return id;
+    }
+
+    public long getUsedAt() {
+        return usedAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CompactCouponUsage that = (CompactCouponUsage) o;
+        return Objects.equals(id, that.id) && usedAt == that.usedAt;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, usedAt);
+    }
+}
@@ -0,0 +1,48 @@
+package com.discount.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+@Embeddable
+public class CompactUsageKey implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @Column(name = "coupon_id", nullable = false)
+    private Long couponId;
+
+    @Column(name = "user_hash", nullable = false)
+    private Long userHash;
+
+    public CompactUsageKey() {
+    }
+
+    public CompactUsageKey(Long couponId, Long userHash) {
+        this.couponId = couponId;
+        this.userHash = userHash;
+    }
+
+    public Long getCouponId() {
+        return couponId;
+    }
+
+    public Long getUserHash() {
+        return userHash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CompactUsageKey that = (CompactUsageKey) o;
+        return Objects.equals(couponId, that.couponId) &&
+               Objects.equals(userHash, that.userHash);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(couponId, userHash);
+    }
+}
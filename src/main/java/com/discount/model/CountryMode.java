@@ -0,0 +1,12 @@
+package com.discount.model;
+
+// Whether a coupon's country set lists the countries it is valid in, or the ones it is not
+public enum CountryMode {
+    ALLOW,
+    DENY;
+
+    // An empty set places no restriction, whichever the mode
+    public boolean admits(CountrySet countries, String country) {
+        return countries.isEmpty() || countries.contains(country) == (this == ALLOW);
+    }
+}
@@ -0,0 +1,124 @@
+package com.discount.model;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+// Immutable set of ISO-3166 alpha-2 country codes. Each of the 26 * 26 possible codes maps to one
+// bit, so membership is a single bit test and the whole set fits in at most 85 bytes.
+public final class CountrySet {
+    private static final int SIZE = 26 * 26;
+    private static final CountrySet EMPTY = new CountrySet(new long[(SIZE + 63) / 64]);
+
+    private final long[] bits;
+    private final int size;
+
+    private CountrySet(long[] bits) {
+        this.bits = bits;
+        int size = 0;
+        for (long word : bits) {
+            size += Long.bitCount(word);
+        }
+        this.size = size;
+    }
+
+    public static CountrySet empty() {
+        return EMPTY;
+    }
+
+    public static CountrySet of(String... codes) {
+        return of(Arrays.asList(codes));
+    }
+
+    public static CountrySet of(Collection<String> codes) {
+        long[] bits = new long[EMPTY.bits.length];
+        for (String code : codes) {
+            int index = indexOf(code);
+            if (index < 0) {
+                throw new IllegalArgumentException("Invalid country code: " + code);
+            }
+            bits[index >>> 6] |= 1L << index;
+        }
+        return new CountrySet(bits);
+    }
+
+    public static CountrySet fromBytes(byte[] bytes) {
+        long[] bits = new long[EMPTY.bits.length];
+        for (int i = 0; i < bytes.length && i < bits.length * 8; i++) {
+            bits[i >>> 3] |= (bytes[i] & 0xFFL) << ((i & 7) * 8);
+        }
+        return new CountrySet(bits);
+    }
+
+    public boolean contains(String code) {
+        int index = indexOf(code);
+        return index >= 0 && (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Little-endian, with trailing zero bytes dropped
+    public byte[] toBytes() {
+        byte[] bytes = new byte[bits.length * 8];
+        int length = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (bits[i >>> 3] >>> ((i & 7) * 8));
+            if (bytes[i] != 0) {
+                length = i + 1;
+            }
+        }
+        return Arrays.copyOf(bytes, length);
+    }
+
+    @JsonValue
+    public List<String> toCodes() {
+        List<String> codes = new ArrayList<>(size());
+        for (int word = 0; word < bits.length; word++) {
+            long remaining = bits[word];
+            while (remaining != 0) {
+                int index = word * 64 + Long.numberOfTrailingZeros(remaining);
+                codes.add(new String(new char[] {(char) ('A' + index / 26), (char) ('A' + index % 26)}));
+                remaining &= remaining - 1;
+            }
+        }
+        return codes;
+    }
+
+    private static int indexOf(String code) {
+        if (code == null || code.length() != 2) {
+            return -1;
+        }
+        int first = Character.toUpperCase(code.charAt(0)) - 'A';
+        int second = Character.toUpperCase(code.charAt(1)) - 'A';
+        if (first < 0 || first >= 26 || second < 0 || second >= 26) {
+            return -1;
+        }
+        return first * 26 + second;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return Arrays.equals(bits, ((CountrySet) o).bits);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(bits);
+    }
+
+    @Override
+    public String toString() {
+        return toCodes().toString();
+    }
+}
@@ -0,0 +1,18 @@
+package com.discount.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+@Converter
+public class CountrySetConverter implements AttributeConverter<CountrySet, byte[]> {
+
+    @Override
+    public byte[] convertToDatabaseColumn(CountrySet countries) {
+        return countries == null || countries.isEmpty() ? null : countries.toBytes();
+    }
+
+    @Override
+    public CountrySet convertToEntityAttribute(byte[] bytes) {
+        return bytes == null ? CountrySet.empty() : CountrySet.fromBytes(bytes);
+    }
+}
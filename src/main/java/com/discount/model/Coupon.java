@@ -1,5 +1,7 @@
 package com.discount.model;
 
+import com.discount.service.CouponVersionListener;
+import com.discount.service.RemainingUsesListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
@@ -7,9 +9,9 @@ import jakarta.validation.constraints.NotNull;
 import org.hibernate.annotations.CreationTimestamp;
 
 import java.time.LocalDateTime;
-import java.util.Objects;
 
 @Entity
+@EntityListeners({RemainingUsesListener.class, CouponVersionListener.class})
 public class Coupon {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -30,9 +32,29 @@ public class Coupon {
     @Min(0)
     private Integer currentUses;
 
+    @NotNull
+    @Min(0)
+    private Integer reservedUses;
+
+    // Kept for single-country coupons; matching uses countryMode and countries
     @Column(nullable = true)
     private String country;
 
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = true, length = 8)
+    private CountryMode countryMode;
+
+    @Convert(converter = CountrySetConverter.class)
+    @Column(nullable = true, length = 85)
+    private CountrySet countries;
+
+    // Optional validity window; a null bound leaves that side open
+    @Column(nullable = true)
+    private LocalDateTime validFrom;
+
+    @Column(nullable = true)
+    private LocalDateTime validUntil;
+
     @Version
     private Long version;
 
@@ -43,7 +65,19 @@ public class Coupon {
         this.code = code.toUpperCase();
         this.maxUses = maxUses;
         this.currentUses = 0;
+        this.reservedUses = 0;
         this.country = country != null ? country.toUpperCase() : null;
+        this.countryMode = CountryMode.ALLOW;
+        this.countries = country == null || country.isBlank() ? CountrySet.empty() : CountrySet.of(country);
+    }
+
+    public Coupon(String code, Integer maxUses, CountryMode countryMode, CountrySet countries) {
+        this(code, maxUses, (String) null);
+        this.countryMode = countryMode;
+        this.countries = countries;
+        if (countryMode == CountryMode.ALLOW && countries.size() == 1) {
+            this.country = countries.toCodes().get(0);
+        }
     }
 
     public Long getId() {
@@ -86,6 +120,14 @@ public class Coupon {
         this.currentUses = currentUses;
     }
 
+    public Integer getReservedUses() {
+        return reservedUses;
+    }
+
+    public void setReservedUses(Integer reservedUses) {
+        this.reservedUses = reservedUses;
+    }
+
     public String getCountry() {
         return country;
     }
@@ -94,6 +136,42 @@ public class Coupon {
         this.country = country;
     }
 
+    public CountryMode getCountryMode() {
+        return countryMode != null ? countryMode : CountryMode.ALLOW;
+    }
+
+    public void setCountryMode(CountryMode countryMode) {
+        this.countryMode = countryMode;
+    }
+
+    // Rows written before country sets existed only carry the single country
+    public CountrySet getCountries() {
+        if (countries != null && !countries.isEmpty()) {
+            return countries;
+        }
+        return country == null || country.isBlank() ? CountrySet.empty() : CountrySet.of(country);
+    }
+
+    public void setCountries(CountrySet countries) {
+        this.countries = countries;
+    }
+
+    public LocalDateTime getValidFrom() {
+        return validFrom;
+    }
+
+    public void setValidFrom(LocalDateTime validFrom) {
+        this.validFrom = validFrom;
+    }
+
+    public LocalDateTime getValidUntil() {
+        return validUntil;
+    }
+
+    public void setValidUntil(LocalDateTime validUntil) {
+        this.validUntil = validUntil;
+    }
+
     public Long getVersion() {
         return version;
     }
@@ -103,7 +181,28 @@ public class Coupon {
     }
 
     public boolean isAvailable() {
-        return currentUses < maxUses;
+        return currentUses + reservedUses < maxUses;
+    }
+
+    public boolean hasStartedAt(LocalDateTime now) {
+        return validFrom == null || !now.isBefore(validFrom);
+    }
+
+    public boolean hasExpiredAt(LocalDateTime now) {
+        return validUntil != null && !now.isBefore(validUntil);
+    }
+
+    public void checkValidAt(LocalDateTime now) {
+        if (!hasStartedAt(now)) {
+            throw new IllegalStateException("Coupon is not yet valid");
+        }
+        if (hasExpiredAt(now)) {
+            throw new IllegalStateException("Coupon has expired");
+        }
+    }
+
+    public boolean isValidForCountry(String userCountry) {
+        return getCountryMode().admits(getCountries(), userCountry);
     }
 
     public void incrementUses() {
@@ -113,22 +212,38 @@ public class Coupon {
         this.currentUses++;
     }
 
+    // A reservation holds a slot against maxUses until it is confirmed or released
+    public void reserve() {
+        if (!isAvailable()) {
+            throw new IllegalStateException("Coupon has reached maximum uses");
+        }
+        this.reservedUses++;
+    }
+
+    public void confirmReservation() {
+        releaseReservation();
+        this.currentUses++;
+    }
+
+    public void releaseReservation() {
+        if (reservedUses <= 0) {
+            throw new IllegalStateException("Coupon has no reserved uses");
+        }
+        this.reservedUses--;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        Coupon coupon = (Coupon) o;
-        return Objects.equals(id, coupon.id) &&
-               Objects.equals(code, coupon.code) &&
-               Objects.equals(createdAt, coupon.createdAt) &&
-               Objects.equals(maxUses, coupon.maxUses) &&
-               Objects.equals(currentUses, coupon.currentUses) &&
-               Objects.equals(country, coupon.country) &&
-               Objects.equals(version, coupon.version);
+        // instanceof and getId() so that a lazy Hibernate proxy equals the coupon it stands for
+        if (!(o instanceof Coupon coupon)) return false;
+        // Identity is the database id; unsaved coupons are only equal to themselves
+        return id != null && id.equals(coupon.getId());
     }
 
+    // Constant, so a coupon keeps its hash when it is saved and when its mutable state changes
     @Override
     public int hashCode() {
-        return Objects.hash(id, code, createdAt, maxUses, currentUses, country, version);
+        return Coupon.class.hashCode();
     }
 }
\ No newline at end of file
@@ -0,0 +1,114 @@
+package com.discount.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+import java.util.Objects;
+
+// A block of uses taken from a coupon's remaining budget by one node. The granted uses are
+// already counted in Coupon.currentUses; whatever was not consumed is handed back on return.
+@Entity
+@Table(indexes = {
+    @Index(name = "idx_coupon_lease_node", columnList = "node_id")
+})
+public class CouponLease {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "coupon_id", nullable = false)
+    private Long couponId;
+
+    @Column(name = "node_id", nullable = false)
+    private String nodeId;
+
+    @Column(nullable = false)
+    private int granted;
+
+    @Column(nullable = false)
+    private int consumed;
+
+    @Column(name = "expires_at", nullable = false)
+    private long expiresAt;
+
+    public CouponLease() {
+    }
+
+    public CouponLease(Long couponId, String nodeId, int granted, Instant expiresAt) {
+        this.couponId = couponId;
+        this.nodeId = nodeId;
+        this.granted = granted;
+        this.consumed = 0;
+        this.expiresAt = expiresAt.toEpochMilli();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getCouponId() {
+        return couponId;
+    }
+
+    public void setCouponId(Long couponId) {
+        this.couponId = couponId;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public int getGranted() {
+        return granted;
+    }
+
+    public void setGranted(int granted) {
+        this.granted = granted;
+    }
+
+    public int getConsumed() {
+        return consumed;
+    }
+
+    public void setConsumed(int consumed) {
+        this.consumed = consumed;
+    }
+
+    public Instant getExpiresAt() {
+        return Instant.ofEpochMilli(expiresAt);
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt.toEpochMilli();
+    }
+
+    public int getUnused() {
+        return granted - consumed;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CouponLease that = (CouponLease) o;
+        return granted == that.granted &&
+               consumed == that.consumed &&
+               expiresAt == that.expiresAt &&
+               Objects.equals(id, that.id) &&
+               Objects.equals(couponId, that.couponId) &&
+               Objects.equals(nodeId, that.nodeId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, couponId, nodeId, granted, consumed, expiresAt);
+    }
+}
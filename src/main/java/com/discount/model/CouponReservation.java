@@ -0,0 +1,102 @@
+package com.discount.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+import java.util.Objects;
+
+// Holds are stored compactly (no join to coupon, expiry as epoch millis) so that
+// active reservations can be reloaded into the expiry wheel cheaply after a restart
+@Entity
+@Table(uniqueConstraints = {
+    @UniqueConstraint(columnNames = {"coupon_id", "user_id"})
+})
+public class CouponReservation {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "coupon_id", nullable = false)
+    private Long couponId;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Column(name = "expires_at", nullable = false)
+    private long expiresAt;
+
+    // Country the hold was validated for, attributed to the usage on confirmation
+    @Column(length = 2)
+    private String country;
+
+    public CouponReservation() {
+    }
+
+    public CouponReservation(Long couponId, String userId, Instant expiresAt, String country) {
+        this.couponId = couponId;
+        this.userId = userId;
+        this.expiresAt = expiresAt.toEpochMilli();
+        this.country = country;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getCouponId() {
+        return couponId;
+    }
+
+    public void setCouponId(Long couponId) {
+        this.couponId = couponId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public Instant getExpiresAt() {
+        return Instant.ofEpochMilli(expiresAt);
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt.toEpochMilli();
+    }
+
+    public String getCountry() {
+        return country;
+    }
+
+    public void setCountry(String country) {
+        this.country = country;
+    }
+
+    public boolean isExpiredAt(Instant now) {
+        return expiresAt <= now.toEpochMilli();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CouponReservation that = (CouponReservation) o;
+        return expiresAt == that.expiresAt &&
+               Objects.equals(id, that.id) &&
+               Objects.equals(couponId, that.couponId) &&
+               Objects.equals(userId, that.userId) &&
+               Objects.equals(country, that.country);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, couponId, userId, expiresAt, country);
+    }
+}
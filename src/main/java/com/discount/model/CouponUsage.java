@@ -8,13 +8,16 @@ import java.util.Objects;
 @Entity
 @Table(uniqueConstraints = {
     @UniqueConstraint(columnNames = {"coupon_id", "user_id"})
+}, indexes = {
+    // Serves per-user history in used_at order; coupon_id makes it covering and breaks ties
+    @Index(name = "idx_coupon_usage_user_used_at", columnList = "user_id, used_at, coupon_id")
 })
 public class CouponUsage {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "coupon_id", nullable = false)
     private Coupon coupon;
 
@@ -0,0 +1,130 @@
+package com.discount.model;
+
+import jakarta.persistence.*;
+
+import java.util.Objects;
+
+// Redemption counter for one coupon, country and time bucket; maintained incrementally so that
+// analytics never have to scan coupon_usage
+@Entity
+@Table(uniqueConstraints = {
+    @UniqueConstraint(columnNames = {"coupon_id", "granularity", "bucket_start", "country"})
+})
+public class CouponUsageRollup {
+    public enum Granularity {
+        MINUTE(60),
+        HOUR(3600);
+
+        private final long seconds;
+
+        Granularity(long seconds) {
+            this.seconds = seconds;
+        }
+
+        public long getSeconds() {
+            return seconds;
+        }
+
+        public long bucketStart(long epochSecond) {
+            return epochSecond - Math.floorMod(epochSecond, seconds);
+        }
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "coupon_id", nullable = false)
+    private Long couponId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 8)
+    private Granularity granularity;
+
+    // Epoch seconds
+    @Column(name = "bucket_start", nullable = false)
+    private long bucketStart;
+
+    @Column(nullable = false, length = 2)
+    private String country;
+
+    @Column(nullable = false)
+    private long redemptions;
+
+    public CouponUsageRollup() {
+    }
+
+    public CouponUsageRollup(Long couponId, Granularity granularity, long bucketStart, String country, long redemptions) {
+        this.couponId = couponId;
+        this.granularity = granularity;
+        this.bucketStart = bucketStart;
+        this.country = country;
+        this.redemptions = redemptions;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getCouponId() {
+        return couponId;
+    }
+
+    public void setCouponId(Long couponId) {
+        this.couponId = couponId;
+    }
+
+    public Granularity getGranularity() {
+        return granularity;
+    }
+
+    public void setGranularity(Granularity granularity) {
+        this.granularity = granularity;
+    }
+
+    public long getBucketStart() {
+        return bucketStart;
+    }
+
+    public void setBucketStart(long bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public String getCountry() {
+        return country;
+    }
+
+    public void setCountry(String country) {
+        this.country = country;
+    }
+
+    public long getRedemptions() {
+        return redemptions;
+    }
+
+    public void setRedemptions(long redemptions) {
+        this.redemptions = redemptions;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CouponUsageRollup that = (CouponUsageRollup) o;
+        return bucketStart == that.bucketStart &&
+               redemptions == that.redemptions &&
+               Objects.equals(id, that.id) &&
+               Objects.equals(couponId, that.couponId) &&
+               granularity == that.granularity &&
+               Objects.equals(country, that.country);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, couponId, granularity, bucketStart, country, redemptions);
+    }
+}
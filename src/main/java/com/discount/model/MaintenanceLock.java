@@ -0,0 +1,51 @@
+package com.discount.model;
+
+import jakarta.persistence.*;
+
+import java.util.Objects;
+
+// Named lock that lets one node at a time run a cluster-wide maintenance job. It lapses at
+// locked_until, so a node that dies while holding it only holds up the job until then.
+@Entity
+@Table(name = "maintenance_lock")
+public class MaintenanceLock {
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    @Column(nullable = false)
+    private String owner;
+
+    @Column(name = "locked_until", nullable = false)
+    private long lockedUntil;
+
+    public MaintenanceLock() {
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public long getLockedUntil() {
+        return lockedUntil;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        MaintenanceLock that = (MaintenanceLock) o;
+        return lockedUntil == that.lockedUntil &&
+               Objects.equals(name, that.name) &&
+               Objects.equals(owner, that.owner);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, owner, lockedUntil);
+    }
+}
@@ -0,0 +1,43 @@
+package com.discount.model;
+
+import jakarta.persistence.*;
+
+import java.util.Objects;
+
+// Interned user id. user_hash is a 64-bit hash of the id, or the next free value after it when
+// another user already holds that hash.
+@Entity
+@Table(name = "usage_user")
+public class UsageUser {
+    @Id
+    @Column(name = "user_hash")
+    private Long userHash;
+
+    @Column(name = "user_id", nullable = false, unique = true)
+    private String userId;
+
+    public UsageUser() {
+    }
+
+    public Long getUserHash() {
+        return userHash;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        UsageUser that = (UsageUser) o;
+        return Objects.equals(userHash, that.userHash) &&
+               Objects.equals(userId, that.userId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(userHash, userId);
+    }
+}
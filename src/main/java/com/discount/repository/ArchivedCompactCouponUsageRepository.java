@@ -0,0 +1,40 @@
+package com.discount.repository;
+
+import com.discount.model.ArchivedCompactCouponUsage;
+import com.discount.model.CompactUsageKey;
+import com.discount.repository.CompactCouponUsageRepository.HistoryRow;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface ArchivedCompactCouponUsageRepository extends JpaRepository<ArchivedCompactCouponUsage, CompactUsageKey> {
+    @Modifying
+    @Query(value = "INSERT INTO coupon_usage_compact_archive (coupon_id, user_hash, used_at) " +
+                   "VALUES (:couponId, :userHash, :usedAt)", nativeQuery = true)
+    int insert(@Param("couponId") Long couponId, @Param("userHash") long userHash, @Param("usedAt") long usedAt);
+
+    // The coupon is usually archived too, but its usages are moved first
+    @Query("SELECT new com.discount.repository.CompactCouponUsageRepository$HistoryRow(u.id.couponId, " +
+           "COALESCE(a.code, c.code), u.usedAt) FROM ArchivedCompactCouponUsage u " +
+           "LEFT JOIN ArchivedCoupon a ON a.id = u.id.couponId LEFT JOIN Coupon c ON c.id = u.id.couponId " +
+           "WHERE u.id.userHash = :userHash ORDER BY u.usedAt DESC, u.id.couponId DESC")
+    List<HistoryRow> findHistoryByUserHash(@Param("userHash") Long userHash, Pageable page);
+
+    @Query("SELECT new com.discount.repository.CompactCouponUsageRepository$HistoryRow(u.id.couponId, " +
+           "COALESCE(a.code, c.code), u.usedAt) FROM ArchivedCompactCouponUsage u " +
+           "LEFT JOIN ArchivedCoupon a ON a.id = u.id.couponId LEFT JOIN Coupon c ON c.id = u.id.couponId " +
+           "WHERE u.id.userHash = :userHash " +
+           "AND (u.usedAt < :usedAt OR (u.usedAt = :usedAt AND u.id.couponId < :couponId)) " +
+           "ORDER BY u.usedAt DESC, u.id.couponId DESC")
+    List<HistoryRow> findHistoryByUserHashAfter(@Param("userHash") Long userHash,
+                                                @Param("usedAt") long usedAt,
+                                                @Param("couponId") Long couponId,
+                                                Pageable page);
+
+    @Query("SELECT COUNT(u) FROM ArchivedCompactCouponUsage u WHERE u.id.couponId = :couponId")
+    long countByCouponId(@Param("couponId") Long couponId);
+}
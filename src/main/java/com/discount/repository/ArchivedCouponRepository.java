@@ -0,0 +1,28 @@
+package com.discount.repository;
+
+import com.discount.dto.CouponView;
+import com.discount.model.ArchivedCoupon;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface ArchivedCouponRepository extends JpaRepository<ArchivedCoupon, Long> {
+    @Query("SELECT c FROM ArchivedCoupon c WHERE UPPER(c.code) = UPPER(:code)")
+    Optional<ArchivedCoupon> findByCodeIgnoreCase(@Param("code") String code);
+
+    // Archived coupons hold no reservations
+    @Query("SELECT new com.discount.dto.CouponView(c.id, c.code, c.createdAt, c.maxUses, c.currentUses, 0, " +
+           "c.country, c.countryMode, c.countries, c.validFrom, c.validUntil, c.version) FROM ArchivedCoupon c " +
+           "WHERE UPPER(c.code) = UPPER(:code)")
+    Optional<CouponView> findViewByCodeIgnoreCase(@Param("code") String code);
+
+    @Modifying
+    @Query(value = "INSERT INTO coupon_archive " +
+                   "(id, code, created_at, max_uses, current_uses, country, country_mode, countries, valid_from, valid_until, version, archived_at) " +
+                   "SELECT id, code, created_at, max_uses, current_uses, country, country_mode, countries, valid_from, valid_until, version, CURRENT_TIMESTAMP " +
+                   "FROM coupon WHERE id = :couponId", nativeQuery = true)
+    int copyFromCoupon(@Param("couponId") Long couponId);
+}
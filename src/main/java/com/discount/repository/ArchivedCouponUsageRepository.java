@@ -0,0 +1,46 @@
+package com.discount.repository;
+
+import com.discount.dto.UserCouponUsage;
+import com.discount.model.ArchivedCouponUsage;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface ArchivedCouponUsageRepository extends JpaRepository<ArchivedCouponUsage, Long> {
+    @Modifying
+    @Query(value = "INSERT INTO coupon_usage_archive (id, coupon_id, user_id, used_at) " +
+                   "SELECT id, coupon_id, user_id, used_at FROM coupon_usage WHERE id IN (:ids)", nativeQuery = true)
+    int copyFromCouponUsage(@Param("ids") List<Long> ids);
+
+    // The coupon is usually archived too, but its usages are moved first
+    @Query("SELECT new com.discount.dto.UserCouponUsage(u.couponId, COALESCE(a.code, c.code), u.usedAt) " +
+           "FROM ArchivedCouponUsage u LEFT JOIN ArchivedCoupon a ON a.id = u.couponId " +
+           "LEFT JOIN Coupon c ON c.id = u.couponId WHERE u.userId = :userId " +
+           "ORDER BY u.usedAt DESC, u.couponId DESC")
+    List<UserCouponUsage> findHistoryByUserId(@Param("userId") String userId, Pageable page);
+
+    @Query("SELECT new com.discount.dto.UserCouponUsage(u.couponId, COALESCE(a.code, c.code), u.usedAt) " +
+           "FROM ArchivedCouponUsage u LEFT JOIN ArchivedCoupon a ON a.id = u.couponId " +
+           "LEFT JOIN Coupon c ON c.id = u.couponId WHERE u.userId = :userId " +
+           "AND (u.usedAt < :usedAt OR (u.usedAt = :usedAt AND u.couponId < :couponId)) " +
+           "ORDER BY u.usedAt DESC, u.couponId DESC")
+    List<UserCouponUsage> findHistoryByUserIdAfter(@Param("userId") String userId,
+                                                   @Param("usedAt") LocalDateTime usedAt,
+                                                   @Param("couponId") Long couponId,
+                                                   Pageable page);
+
+    @Query("SELECT COUNT(u) FROM ArchivedCouponUsage u WHERE u.couponId = :couponId")
+    long countByCouponId(@Param("couponId") Long couponId);
+
+    @Query("SELECT u FROM ArchivedCouponUsage u ORDER BY u.id")
+    List<ArchivedCouponUsage> findChunk(Pageable page);
+
+    @Modifying
+    @Query("DELETE FROM ArchivedCouponUsage u WHERE u.id IN :ids")
+    int deleteByIds(@Param("ids") List<Long> ids);
+}
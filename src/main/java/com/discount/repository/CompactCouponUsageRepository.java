@@ -0,0 +1,50 @@
+package com.discount.repository;
+
+import com.discount.model.CompactCouponUsage;
+import com.discount.model.CompactUsageKey;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface CompactCouponUsageRepository extends JpaRepository<CompactCouponUsage, CompactUsageKey> {
+    @Modifying
+    @Query(value = "INSERT INTO coupon_usage_compact (coupon_id, user_hash, used_at) " +
+                   "VALUES (:couponId, :userHash, :usedAt)", nativeQuery = true)
+    int insert(@Param("couponId") Long couponId, @Param("userHash") long userHash, @Param("usedAt") long usedAt);
+
+    @Query("SELECT new com.discount.repository.CompactCouponUsageRepository$HistoryRow(c.id, c.code, u.usedAt) " +
+           "FROM CompactCouponUsage u JOIN Coupon c ON c.id = u.id.couponId WHERE u.id.userHash = :userHash " +
+           "ORDER BY u.usedAt DESC, c.id DESC")
+    List<HistoryRow> findHistoryByUserHash(@Param("userHash") Long userHash, Pageable page);
+
+    @Query("SELECT new com.discount.repository.CompactCouponUsageRepository$HistoryRow(c.id, c.code, u.usedAt) " +
+           "FROM CompactCouponUsage u JOIN Coupon c ON c.id = u.id.couponId WHERE u.id.userHash = :userHash " +
+           "AND (u.usedAt < :usedAt OR (u.usedAt = :usedAt AND c.id < :couponId)) " +
+           "ORDER BY u.usedAt DESC, c.id DESC")
+    List<HistoryRow> findHistoryByUserHashAfter(@Param("userHash") Long userHash,
+                                                @Param("usedAt") long usedAt,
+                                                @Param("couponId") Long couponId,
+                                                Pageable page);
+
+    @Query("SELECT u.id.userHash FROM CompactCouponUsage u WHERE u.id.couponId = :couponId ORDER BY u.id.userHash")
+    List<Long> findUserHashesByCouponId(@Param("couponId") Long couponId, Pageable page);
+
+    @Modifying
+    @Query(value = "INSERT INTO coupon_usage_compact_archive (coupon_id, user_hash, used_at) " +
+                   "SELECT coupon_id, user_hash, used_at FROM coupon_usage_compact " +
+                   "WHERE coupon_id = :couponId AND user_hash IN (:userHashes)", nativeQuery = true)
+    int copyToArchive(@Param("couponId") Long couponId, @Param("userHashes") List<Long> userHashes);
+
+    @Modifying
+    @Query("DELETE FROM CompactCouponUsage u WHERE u.id.couponId = :couponId AND u.id.userHash IN :userHashes")
+    int deleteByUserHashes(@Param("couponId") Long couponId, @Param("userHashes") List<Long> userHashes);
+
+    @Query("SELECT COUNT(u) FROM CompactCouponUsage u WHERE u.id.couponId = :couponId")
+    long countByCouponId(@Param("couponId") Long couponId);
+
+    record HistoryRow(Long couponId, String code, long usedAt) {}
+}
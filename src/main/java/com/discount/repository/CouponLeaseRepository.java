@@ -0,0 +1,32 @@
+package com.discount.repository;
+
+import com.discount.model.CouponLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import jakarta.persistence.LockModeType;
+import java.util.List;
+import java.util.Optional;
+
+public interface CouponLeaseRepository extends JpaRepository<CouponLease, Long> {
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT l FROM CouponLease l WHERE l.id = :id")
+    Optional<CouponLease> findByIdForUpdate(@Param("id") Long id);
+
+    // Touches only this node's lease row, so redemptions on different nodes never contend
+    @Modifying
+    @Query("UPDATE CouponLease l SET l.consumed = l.consumed + 1 WHERE l.id = :id AND l.consumed < l.granted")
+    int consumeOne(@Param("id") Long id);
+
+    @Query("SELECT l.id FROM CouponLease l WHERE l.nodeId = :nodeId")
+    List<Long> findIdsByNodeId(@Param("nodeId") String nodeId);
+
+    @Query("SELECT l.id FROM CouponLease l WHERE l.expiresAt < :expiredBefore")
+    List<Long> findIdsExpiredBefore(@Param("expiredBefore") long expiredBefore);
+
+    @Query("SELECT COUNT(l) FROM CouponLease l WHERE l.couponId = :couponId")
+    long countByCouponId(@Param("couponId") Long couponId);
+}
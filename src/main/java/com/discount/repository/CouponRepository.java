@@ -1,16 +1,70 @@
 package com.discount.repository;
 
+import com.discount.dto.CouponView;
 import com.discount.model.Coupon;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import jakarta.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 public interface CouponRepository extends JpaRepository<Coupon, Long> {
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("SELECT c FROM Coupon c WHERE UPPER(c.code) = UPPER(:code)")
     Optional<Coupon> findByCodeIgnoreCase(@Param("code") String code);
-} 
\ No newline at end of file
+
+    @Query("SELECT c FROM Coupon c WHERE UPPER(c.code) = UPPER(:code)")
+    Optional<Coupon> findByCodeIgnoreCaseWithoutLock(@Param("code") String code);
+
+    // Read-only views, selected without managing entities
+    @Query("SELECT new com.discount.dto.CouponView(c.id, c.code, c.createdAt, c.maxUses, c.currentUses, c.reservedUses, " +
+           "c.country, c.countryMode, c.countries, c.validFrom, c.validUntil, c.version) FROM Coupon c ORDER BY c.id")
+    List<CouponView> findAllViews();
+
+    @Query("SELECT new com.discount.dto.CouponView(c.id, c.code, c.createdAt, c.maxUses, c.currentUses, c.reservedUses, " +
+           "c.country, c.countryMode, c.countries, c.validFrom, c.validUntil, c.version) FROM Coupon c " +
+           "WHERE UPPER(c.code) = UPPER(:code)")
+    Optional<CouponView> findViewByCodeIgnoreCase(@Param("code") String code);
+
+    @Query("SELECT new com.discount.dto.CouponView(c.id, c.code, c.createdAt, c.maxUses, c.currentUses, c.reservedUses, " +
+           "c.country, c.countryMode, c.countries, c.validFrom, c.validUntil, c.version) FROM Coupon c " +
+           "WHERE (c.validUntil IS NULL OR c.validUntil > :now) AND c.currentUses + c.reservedUses < c.maxUses ORDER BY c.id")
+    List<CouponView> findActiveViews(@Param("now") LocalDateTime now, Pageable page);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Coupon c WHERE c.id = :id")
+    Optional<Coupon> findByIdForUpdate(@Param("id") Long id);
+
+    @Query("SELECT c.maxUses - c.currentUses - c.reservedUses FROM Coupon c WHERE c.id = :id")
+    Optional<Integer> findRemainingUses(@Param("id") Long id);
+
+    // Single conditional update, so concurrent allocations can never push the coupon past maxUses
+    @Modifying
+    @Query("UPDATE Coupon c SET c.currentUses = c.currentUses + :uses, c.version = c.version + 1 " +
+           "WHERE c.id = :id AND c.currentUses + c.reservedUses + :uses <= c.maxUses")
+    int allocateUses(@Param("id") Long id, @Param("uses") int uses);
+
+    @Modifying
+    @Query("UPDATE Coupon c SET c.currentUses = c.currentUses - :uses, c.version = c.version + 1 " +
+           "WHERE c.id = :id AND c.currentUses >= :uses")
+    int returnUses(@Param("id") Long id, @Param("uses") int uses);
+
+    // Changes whenever a coupon is created, changed or deleted, without loading any of them
+    @Query("SELECT new com.discount.repository.CouponRepository$Watermark(COUNT(c), COALESCE(SUM(c.version), 0), " +
+           "COALESCE(MAX(c.id), 0)) FROM Coupon c")
+    Watermark findWatermark();
+
+    // Expired or exhausted coupons that no reservation or lease still depends on
+    @Query("SELECT c.id FROM Coupon c WHERE (c.validUntil <= :now OR c.currentUses >= c.maxUses) " +
+           "AND c.reservedUses = 0 " +
+           "AND NOT EXISTS (SELECT l.id FROM CouponLease l WHERE l.couponId = c.id) ORDER BY c.id")
+    List<Long> findArchivableIds(@Param("now") LocalDateTime now, Pageable page);
+
+    record Watermark(Long count, Long versionSum, Long maxId) {}
+}
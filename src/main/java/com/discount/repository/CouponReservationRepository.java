@@ -0,0 +1,20 @@
+package com.discount.repository;
+
+import com.discount.model.CouponReservation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface CouponReservationRepository extends JpaRepository<CouponReservation, Long> {
+    @Query("SELECT r FROM CouponReservation r WHERE r.couponId = :couponId AND r.userId = :userId")
+    Optional<CouponReservation> findByCouponIdAndUserId(@Param("couponId") Long couponId, @Param("userId") String userId);
+
+    @Query("SELECT new com.discount.repository.CouponReservationRepository$ReservationDeadline(r.id, r.expiresAt) " +
+           "FROM CouponReservation r")
+    List<ReservationDeadline> findAllDeadlines();
+
+    record ReservationDeadline(Long id, long expiresAt) {}
+}
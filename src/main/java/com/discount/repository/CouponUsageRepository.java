@@ -1,13 +1,43 @@
 package com.discount.repository;
 
+import com.discount.dto.UserCouponUsage;
 import com.discount.model.CouponUsage;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 public interface CouponUsageRepository extends JpaRepository<CouponUsage, Long> {
     @Query("SELECT cu FROM CouponUsage cu WHERE cu.coupon.id = :couponId AND cu.userId = :userId")
     Optional<CouponUsage> findByCouponIdAndUserId(@Param("couponId") Long couponId, @Param("userId") String userId);
-} 
\ No newline at end of file
+
+    // Keyset pagination over (usedAt, couponId), which is unique per user
+    @Query("SELECT new com.discount.dto.UserCouponUsage(c.id, c.code, cu.usedAt) " +
+           "FROM CouponUsage cu JOIN cu.coupon c WHERE cu.userId = :userId " +
+           "ORDER BY cu.usedAt DESC, c.id DESC")
+    List<UserCouponUsage> findHistoryByUserId(@Param("userId") String userId, Pageable page);
+
+    @Query("SELECT new com.discount.dto.UserCouponUsage(c.id, c.code, cu.usedAt) " +
+           "FROM CouponUsage cu JOIN cu.coupon c WHERE cu.userId = :userId " +
+           "AND (cu.usedAt < :usedAt OR (cu.usedAt = :usedAt AND c.id < :couponId)) " +
+           "ORDER BY cu.usedAt DESC, c.id DESC")
+    List<UserCouponUsage> findHistoryByUserIdAfter(@Param("userId") String userId,
+                                                   @Param("usedAt") LocalDateTime usedAt,
+                                                   @Param("couponId") Long couponId,
+                                                   Pageable page);
+
+    @Query("SELECT cu.id FROM CouponUsage cu WHERE cu.coupon.id = :couponId ORDER BY cu.id")
+    List<Long> findIdsByCouponId(@Param("couponId") Long couponId, Pageable page);
+
+    @Query("SELECT cu FROM CouponUsage cu JOIN FETCH cu.coupon ORDER BY cu.id")
+    List<CouponUsage> findChunk(Pageable page);
+
+    @Modifying
+    @Query("DELETE FROM CouponUsage cu WHERE cu.id IN :ids")
+    int deleteByIds(@Param("ids") List<Long> ids);
+}
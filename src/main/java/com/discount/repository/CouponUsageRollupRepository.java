@@ -0,0 +1,33 @@
+package com.discount.repository;
+
+import com.discount.model.CouponUsageRollup;
+import com.discount.model.CouponUsageRollup.Granularity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface CouponUsageRollupRepository extends JpaRepository<CouponUsageRollup, Long> {
+    @Modifying
+    @Query("UPDATE CouponUsageRollup r SET r.redemptions = r.redemptions + :delta " +
+           "WHERE r.couponId = :couponId AND r.granularity = :granularity " +
+           "AND r.bucketStart = :bucketStart AND r.country = :country")
+    int increment(@Param("couponId") Long couponId,
+                  @Param("granularity") Granularity granularity,
+                  @Param("bucketStart") long bucketStart,
+                  @Param("country") String country,
+                  @Param("delta") long delta);
+
+    @Query("SELECT r FROM CouponUsageRollup r WHERE r.couponId = :couponId AND r.granularity = :granularity " +
+           "AND r.bucketStart >= :from AND r.bucketStart < :to ORDER BY r.bucketStart, r.country")
+    List<CouponUsageRollup> findBuckets(@Param("couponId") Long couponId,
+                                        @Param("granularity") Granularity granularity,
+                                        @Param("from") long from,
+                                        @Param("to") long to);
+
+    @Modifying
+    @Query("DELETE FROM CouponUsageRollup r WHERE r.granularity = :granularity AND r.bucketStart < :before")
+    int deleteOlderThan(@Param("granularity") Granularity granularity, @Param("before") long before);
+}
@@ -0,0 +1,25 @@
+package com.discount.repository;
+
+import com.discount.model.MaintenanceLock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface MaintenanceLockRepository extends JpaRepository<MaintenanceLock, String> {
+    // Fails with a DataIntegrityViolationException if another node created the lock first
+    @Modifying
+    @Query(value = "INSERT INTO maintenance_lock (name, owner, locked_until) VALUES (:name, '', 0)", nativeQuery = true)
+    int create(@Param("name") String name);
+
+    // Takes a lapsed lock, or extends one this owner already holds
+    @Modifying
+    @Query("UPDATE MaintenanceLock l SET l.owner = :owner, l.lockedUntil = :lockedUntil " +
+           "WHERE l.name = :name AND (l.lockedUntil < :now OR l.owner = :owner)")
+    int acquire(@Param("name") String name, @Param("owner") String owner,
+                @Param("now") long now, @Param("lockedUntil") long lockedUntil);
+
+    @Modifying
+    @Query("UPDATE MaintenanceLock l SET l.lockedUntil = 0 WHERE l.name = :name AND l.owner = :owner")
+    int release(@Param("name") String name, @Param("owner") String owner);
+}
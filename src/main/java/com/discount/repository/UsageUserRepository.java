@@ -0,0 +1,19 @@
+package com.discount.repository;
+
+import com.discount.model.UsageUser;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface UsageUserRepository extends JpaRepository<UsageUser, Long> {
+    @Query("SELECT u.userHash FROM UsageUser u WHERE u.userId = :userId")
+    Optional<Long> findHashByUserId(@Param("userId") String userId);
+
+    // Plain INSERT rather than save(), which would merge into a row another user already holds
+    @Modifying
+    @Query(value = "INSERT INTO usage_user (user_hash, user_id) VALUES (:userHash, :userId)", nativeQuery = true)
+    int insert(@Param("userHash") long userHash, @Param("userId") String userId);
+}
@@ -0,0 +1,174 @@
+package com.discount.service;
+
+import com.discount.model.ArchivedCouponUsage;
+import com.discount.model.CouponUsage;
+import com.discount.repository.ArchivedCompactCouponUsageRepository;
+import com.discount.repository.ArchivedCouponUsageRepository;
+import com.discount.repository.CompactCouponUsageRepository;
+import com.discount.repository.CouponUsageRepository;
+import com.discount.repository.MaintenanceLockRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+// Converts usages written in the standard layout, live and archived, into the compact tables.
+// Each chunk is copied and deleted in one transaction, so the migration can be interrupted and
+// resumed, and redemptions keep working against the compact store while it runs. Only the node
+// holding the migration lock converts rows; it renews the lock before every chunk, so a node
+// that stalls past the lock TTL stops rather than racing the node that took over. The pass is
+// repeated periodically to pick up usages still written by nodes on the standard layout.
+@Component
+@ConditionalOnProperty(name = "coupon.usage.storage", havingValue = "compact")
+public class CompactUsageMigration {
+    private static final Logger log = LoggerFactory.getLogger(CompactUsageMigration.class);
+    static final String LOCK_NAME = "compact-usage-migration";
+
+    private final CouponUsageRepository couponUsageRepository;
+    private final ArchivedCouponUsageRepository archivedCouponUsageRepository;
+    private final CompactCouponUsageRepository compactUsageRepository;
+    private final ArchivedCompactCouponUsageRepository archivedCompactUsageRepository;
+    private final CompactUsageStore usageStore;
+    private final MaintenanceLockRepository lockRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean migrateOnStartup;
+    private final int chunkSize;
+    private final long lockTtlMillis;
+    private final String owner = UUID.randomUUID().toString();
+
+    public CompactUsageMigration(CouponUsageRepository couponUsageRepository,
+                                 ArchivedCouponUsageRepository archivedCouponUsageRepository,
+                                 CompactCouponUsageRepository compactUsageRepository,
+                                 ArchivedCompactCouponUsageRepository archivedCompactUsageRepository,
+                                 CompactUsageStore usageStore,
+                                 MaintenanceLockRepository lockRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${coupon.usage.migrate-on-startup:true}") boolean migrateOnStartup,
+                                 @Value("${coupon.usage.migration-chunk-size:1000}") int chunkSize,
+                                 @Value("${coupon.usage.migration-lock-ttl:5m}") Duration lockTtl) {
+        this.couponUsageRepository = couponUsageRepository;
+        this.archivedCouponUsageRepository = archivedCouponUsageRepository;
+        this.compactUsageRepository = compactUsageRepository;
+        this.archivedCompactUsageRepository = archivedCompactUsageRepository;
+        this.usageStore = usageStore;
+        this.lockRepository = lockRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.migrateOnStartup = migrateOnStartup;
+        this.chunkSize = chunkSize;
+        this.lockTtlMillis = lockTtl.toMillis();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateOnStartup() {
+        migrateScheduled();
+    }
+
+    @Scheduled(initialDelayString = "${coupon.usage.migration-interval-ms:60000}",
+               fixedDelayString = "${coupon.usage.migration-interval-ms:60000}")
+    public void migrateScheduled() {
+        try {
+            if (migrateOnStartup) {
+                migrate();
+            } else {
+                refreshLegacyUsagesPresent();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Compact usage migration failed, it will be retried", e);
+        }
+    }
+
+    // Returns the number of usages converted, or zero if another node holds the migration lock
+    public long migrate() {
+        if (!tryLock()) {
+            refreshLegacyUsagesPresent();
+            return 0;
+        }
+        long migrated = 0;
+        try {
+            int moved;
+            do {
+                moved = migrateUsageChunk();
+                migrated += moved;
+            } while (moved == chunkSize && tryLock());
+            do {
+                moved = migrateArchivedUsageChunk();
+                migrated += moved;
+            } while (moved == chunkSize && tryLock());
+        } finally {
+            unlock();
+            refreshLegacyUsagesPresent();
+        }
+        if (migrated > 0) {
+            log.info("Converted {} coupon usages to the compact layout", migrated);
+        }
+        return migrated;
+    }
+
+    // The legacy lookup in hasUsed stays on until the standard table is really empty
+    private void refreshLegacyUsagesPresent() {
+        Boolean present = transactionTemplate.execute(status ->
+            !couponUsageRepository.findChunk(PageRequest.ofSize(1)).isEmpty());
+        usageStore.setLegacyUsagesPresent(!Boolean.FALSE.equals(present));
+    }
+
+    // Takes the lock, or renews it if this node already holds it
+    boolean tryLock() {
+        if (!lockRepository.existsById(LOCK_NAME)) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> lockRepository.create(LOCK_NAME));
+            } catch (DataIntegrityViolationException e) {
+                // Another node created it first
+            }
+        }
+        long now = System.currentTimeMillis();
+        Integer acquired = transactionTemplate.execute(status ->
+            lockRepository.acquire(LOCK_NAME, owner, now, now + lockTtlMillis));
+        return acquired != null && acquired > 0;
+    }
+
+    private void unlock() {
+        transactionTemplate.executeWithoutResult(status -> lockRepository.release(LOCK_NAME, owner));
+    }
+
+    private int migrateUsageChunk() {
+        Integer moved = transactionTemplate.execute(status -> {
+            List<CouponUsage> usages = couponUsageRepository.findChunk(PageRequest.ofSize(chunkSize));
+            for (CouponUsage usage : usages) {
+                compactUsageRepository.insert(usage.getCoupon().getId(), usageStore.intern(usage.getUserId()),
+                        CompactUsageStore.toEpochSecond(usage.getUsedAt()));
+            }
+            if (!usages.isEmpty()) {
+                couponUsageRepository.deleteByIds(usages.stream().map(CouponUsage::getId).toList());
+            }
+            return usages.size();
+        });
+        return moved != null ? moved : 0;
+    }
+
+    private int migrateArchivedUsageChunk() {
+        Integer moved = transactionTemplate.execute(status -> {
+            List<ArchivedCouponUsage> usages = archivedCouponUsageRepository.findChunk(PageRequest.ofSize(chunkSize));
+            for (ArchivedCouponUsage usage : usages) {
+                archivedCompactUsageRepository.insert(usage.getCouponId(), usageStore.intern(usage.getUserId()),
+                        CompactUsageStore.toEpochSecond(usage.getUsedAt()));
+            }
+            if (!usages.isEmpty()) {
+                archivedCouponUsageRepository.deleteByIds(usages.stream().map(ArchivedCouponUsage::getId).toList());
+            }
+            return usages.size();
+        });
+        return moved != null ? moved : 0;
+    }
+}
@@ -0,0 +1,321 @@
+package com.discount.service;
+
+import com.discount.dto.UserCouponUsage;
+import com.discount.model.CompactUsageKey;
+import com.discount.model.Coupon;
+import com.discount.repository.ArchivedCompactCouponUsageRepository;
+import com.discount.repository.CompactCouponUsageRepository;
+import com.discount.repository.CompactCouponUsageRepository.HistoryRow;
+import com.discount.repository.CouponUsageRepository;
+import com.discount.repository.UsageUserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Stores each redemption as (coupon_id, user_hash, used_at epoch seconds) with no surrogate key.
+// User ids are interned once in usage_user under a 64-bit hash; on the rare collision the next
+// free hash is taken, so the mapping must always be looked up rather than recomputed.
+@Service
+@ConditionalOnProperty(name = "coupon.usage.storage", havingValue = "compact")
+public class CompactUsageStore implements UsageStore {
+    private static final int MAX_INTERN_ATTEMPTS = 5;
+    private static final int MAX_PROBES = 64;
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final int EXPORT_FETCH_SIZE = 10_000;
+
+    private final CompactCouponUsageRepository usageRepository;
+    private final ArchivedCompactCouponUsageRepository archivedUsageRepository;
+    private final UsageUserRepository userRepository;
+    private final CouponUsageRepository legacyUsageRepository;
+    private final TransactionTemplate internTransaction;
+    private final JdbcTemplate jdbcTemplate;
+    private final int userCacheSize;
+    // The hash of a user never changes once assigned
+    private final Map<String, Long> userHashes = new ConcurrentHashMap<>();
+    // While the standard table holds rows, a usage may still sit there; nodes on the standard
+    // layout can keep adding to it, so this is refreshed after every migration pass
+    private volatile boolean legacyUsagesPresent = true;
+
+    public CompactUsageStore(CompactCouponUsageRepository usageRepository,
+                             ArchivedCompactCouponUsageRepository archivedUsageRepository,
+                             UsageUserRepository userRepository,
+                             CouponUsageRepository legacyUsageRepository,
+                             PlatformTransactionManager transactionManager,
+                             DataSource dataSource,
+                             @Value("${coupon.usage.user-cache-size:100000}") int userCacheSize) {
+        this.usageRepository = usageRepository;
+        this.archivedUsageRepository = archivedUsageRepository;
+        this.userRepository = userRepository;
+        this.legacyUsageRepository = legacyUsageRepository;
+        // Interning commits on its own so that a rolled-back redemption does not undo it
+        this.internTransaction = new TransactionTemplate(transactionManager);
+        this.internTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(EXPORT_FETCH_SIZE);
+        this.userCacheSize = userCacheSize;
+    }
+
+    @Override
+    public boolean hasUsed(Long couponId, String userId) {
+        // The legacy table is read first: the migration copies a row before deleting it, so a
+        // usage moved in between is still found in the compact table
+        if (legacyUsagesPresent && legacyUsageRepository.findByCouponIdAndUserId(couponId, userId).isPresent()) {
+            return true;
+        }
+        return findUserHash(userId)
+                .map(userHash -> usageRepository.existsById(new CompactUsageKey(couponId, userHash)))
+                .orElse(false);
+    }
+
+    @Override
+    public void record(Coupon coupon, String userId) {
+        usageRepository.insert(coupon.getId(), intern(userId), Instant.now().getEpochSecond());
+    }
+
+    @Override
+    public void prepareUser(String userId) {
+        intern(userId);
+    }
+
+    @Override
+    public List<UserCouponUsage> findHistory(String userId, LocalDateTime usedAt, Long couponId, int limit) {
+        PageRequest page = PageRequest.ofSize(limit);
+        // Read before the compact tables: the migration copies a row before deleting it, so a usage
+        // moved in between shows up twice rather than not at all
+        List<UserCouponUsage> legacy = List.of();
+        if (legacyUsagesPresent) {
+            legacy = usedAt == null
+                    ? legacyUsageRepository.findHistoryByUserId(userId, page)
+                    : legacyUsageRepository.findHistoryByUserIdAfter(userId, usedAt, couponId, page);
+        }
+        Optional<Long> userHash = findUserHash(userId);
+        List<UserCouponUsage> live = List.of();
+        List<UserCouponUsage> archived = List.of();
+        if (userHash.isPresent() && usedAt == null) {
+            live = toUsages(usageRepository.findHistoryByUserHash(userHash.get(), page));
+            archived = toUsages(archivedUsageRepository.findHistoryByUserHash(userHash.get(), page));
+        } else if (userHash.isPresent()) {
+            long position = toEpochSecond(usedAt);
+            live = toUsages(usageRepository.findHistoryByUserHashAfter(userHash.get(), position, couponId, page));
+            archived = toUsages(archivedUsageRepository.findHistoryByUserHashAfter(userHash.get(), position, couponId, page));
+        }
+        if (legacy.isEmpty()) {
+            return UsageStore.mergeHistory(live, archived, limit);
+        }
+        // A user redeems a coupon at most once, so a usage seen in both layouts is kept once
+        Set<Long> seen = new HashSet<>();
+        return Stream.of(legacy, live, archived)
+                .flatMap(List::stream)
+                .sorted(UsageStore.HISTORY_ORDER)
+                .filter(usage -> seen.add(usage.couponId()))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public boolean hasUsages(Long couponId) {
+        return !usageRepository.findUserHashesByCouponId(couponId, PageRequest.ofSize(1)).isEmpty();
+    }
+
+    @Override
+    public int archiveUsages(Long couponId, int limit) {
+        List<Long> userHashes = usageRepository.findUserHashesByCouponId(couponId, PageRequest.ofSize(limit));
+        if (!userHashes.isEmpty()) {
+            usageRepository.copyToArchive(couponId, userHashes);
+            usageRepository.deleteByUserHashes(couponId, userHashes);
+        }
+        return userHashes.size();
+    }
+
+    @Override
+    public long countUsages() {
+        return usageRepository.count();
+    }
+
+    @Override
+    public long countArchivedUsages() {
+        return archivedUsageRepository.count();
+    }
+
+    @Override
+    public void exportUsages(Consumer<UsageRecord> consumer) {
+        export("coupon_usage_compact", consumer);
+    }
+
+    @Override
+    public void exportArchivedUsages(Consumer<UsageRecord> consumer) {
+        export("coupon_usage_compact_archive", consumer);
+    }
+
+    @Override
+    public void importUsages(List<UsageRecord> usages) {
+        insert("coupon_usage_compact", usages);
+    }
+
+    // Compact usages are keyed by coupon and user, so firstId is not needed
+    @Override
+    public void importArchivedUsages(List<UsageRecord> usages, long firstId) {
+        insert("coupon_usage_compact_archive", usages);
+    }
+
+    @Override
+    public void restartUsageIds(long nextId) {
+        // Compact usages have no surrogate key
+    }
+
+    @Override
+    public void deleteAllUsages() {
+        jdbcTemplate.update("DELETE FROM coupon_usage_compact_archive");
+        jdbcTemplate.update("DELETE FROM coupon_usage_compact");
+    }
+
+    public long intern(String userId) {
+        Optional<Long> known = findUserHash(userId);
+        if (known.isPresent()) {
+            return known.get();
+        }
+        for (int attempt = 0; attempt < MAX_INTERN_ATTEMPTS; attempt++) {
+            try {
+                Long userHash = internTransaction.execute(status -> assignHash(userId));
+                cache(userId, userHash);
+                return userHash;
+            } catch (DataIntegrityViolationException e) {
+                // A concurrent redemption interned this user, or took the hash we probed; look again
+            }
+        }
+        throw new IllegalStateException("Could not intern user id");
+    }
+
+    private void export(String table, Consumer<UsageRecord> consumer) {
+        jdbcTemplate.query("SELECT u.coupon_id, uu.user_id, u.used_at FROM " + table + " u " +
+                           "JOIN usage_user uu ON uu.user_hash = u.user_hash", (RowCallbackHandler) row ->
+            consumer.accept(new UsageRecord(row.getLong(1), row.getString(2), toLocalDateTime(row.getLong(3)))));
+    }
+
+    private void insert(String table, List<UsageRecord> usages) {
+        Set<String> userIds = new LinkedHashSet<>();
+        usages.forEach(usage -> userIds.add(usage.userId()));
+        Map<String, Long> hashes = internAll(userIds);
+        jdbcTemplate.batchUpdate("INSERT INTO " + table + " (coupon_id, user_hash, used_at) VALUES (?, ?, ?)",
+            usages, usages.size(), (statement, usage) -> {
+                statement.setLong(1, usage.couponId());
+                statement.setLong(2, hashes.get(usage.userId()));
+                statement.setLong(3, toEpochSecond(usage.usedAt()));
+            });
+    }
+
+    void setLegacyUsagesPresent(boolean present) {
+        legacyUsagesPresent = present;
+    }
+
+    // Interns many users in one transaction, falling back to one at a time if another thread
+    // interns some of them concurrently
+    private Map<String, Long> internAll(Set<String> userIds) {
+        Map<String, Long> hashes = new HashMap<>();
+        List<String> unknown = new ArrayList<>();
+        for (String userId : userIds) {
+            Long cached = userHashes.get(userId);
+            if (cached != null) {
+                hashes.put(userId, cached);
+            } else {
+                unknown.add(userId);
+            }
+        }
+        if (unknown.isEmpty()) {
+            return hashes;
+        }
+        try {
+            Map<String, Long> interned = internTransaction.execute(status -> {
+                Map<String, Long> assigned = new HashMap<>();
+                unknown.forEach(userId -> assigned.put(userId, assignHash(userId)));
+                return assigned;
+            });
+            interned.forEach(this::cache);
+            hashes.putAll(interned);
+        } catch (DataIntegrityViolationException e) {
+            unknown.forEach(userId -> hashes.put(userId, intern(userId)));
+        }
+        return hashes;
+    }
+
+    private static List<UserCouponUsage> toUsages(List<HistoryRow> rows) {
+        return rows.stream()
+                .map(row -> new UserCouponUsage(row.couponId(), row.code(), toLocalDateTime(row.usedAt())))
+                .toList();
+    }
+
+    static long toEpochSecond(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+
+    static LocalDateTime toLocalDateTime(long epochSecond) {
+        return LocalDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), ZoneId.systemDefault());
+    }
+
+    // 64-bit FNV-1a over the UTF-8 bytes of the user id
+    static long hash(String userId) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : userId.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private long assignHash(String userId) {
+        Optional<Long> existing = userRepository.findHashByUserId(userId);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+        long candidate = hash(userId);
+        for (int probe = 0; probe < MAX_PROBES; probe++, candidate++) {
+            if (!userRepository.existsById(candidate)) {
+                userRepository.insert(candidate, userId);
+                return candidate;
+            }
+        }
+        throw new IllegalStateException("Could not intern user id");
+    }
+
+    private Optional<Long> findUserHash(String userId) {
+        Long cached = userHashes.get(userId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<Long> userHash = userRepository.findHashByUserId(userId);
+        userHash.ifPresent(hash -> cache(userId, hash));
+        return userHash;
+    }
+
+    private void cache(String userId, Long userHash) {
+        if (userHashes.size() >= userCacheSize) {
+            userHashes.clear();
+        }
+        userHashes.put(userId, userHash);
+    }
+}
@@ -0,0 +1,120 @@
+package com.discount.service;
+
+import com.discount.model.Coupon;
+import com.discount.repository.ArchivedCouponRepository;
+import com.discount.repository.CouponLeaseRepository;
+import com.discount.repository.CouponRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Moves expired and exhausted coupons, and their usages, into the archive tables. Usages are
+// moved in small chunks, each in its own short transaction; the coupon row is only locked for
+// the final move, so redemptions of other coupons are never held up.
+@Service
+public class CouponArchiver {
+    private static final Logger log = LoggerFactory.getLogger(CouponArchiver.class);
+
+    private final CouponRepository couponRepository;
+    private final CouponLeaseRepository leaseRepository;
+    private final ArchivedCouponRepository archivedCouponRepository;
+    private final UsageStore usageStore;
+    private final CouponMetadataCache metadataCache;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int usageChunkSize;
+
+    public CouponArchiver(CouponRepository couponRepository,
+                          CouponLeaseRepository leaseRepository,
+                          ArchivedCouponRepository archivedCouponRepository,
+                          UsageStore usageStore,
+                          CouponMetadataCache metadataCache,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${coupon.archive.enabled:true}") boolean enabled,
+                          @Value("${coupon.archive.batch-size:100}") int batchSize,
+                          @Value("${coupon.archive.usage-chunk-size:1000}") int usageChunkSize) {
+        this.couponRepository = couponRepository;
+        this.leaseRepository = leaseRepository;
+        this.archivedCouponRepository = archivedCouponRepository;
+        this.usageStore = usageStore;
+        this.metadataCache = metadataCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.usageChunkSize = usageChunkSize;
+    }
+
+    @Scheduled(fixedDelayString = "${coupon.archive.interval-ms:60000}")
+    public void archiveScheduled() {
+        if (enabled) {
+            archive();
+        }
+    }
+
+    // Archives at most one batch of coupons and returns how many were moved
+    public int archive() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> candidates = transactionTemplate.execute(status ->
+            couponRepository.findArchivableIds(now, PageRequest.ofSize(batchSize)));
+        int archived = 0;
+        for (Long couponId : candidates) {
+            try {
+                if (archiveCoupon(couponId, now)) {
+                    archived++;
+                }
+            } catch (RuntimeException e) {
+                log.warn("Failed to archive coupon {}", couponId, e);
+            }
+        }
+        if (archived > 0) {
+            log.info("Archived {} expired or exhausted coupons", archived);
+        }
+        return archived;
+    }
+
+    private boolean archiveCoupon(Long couponId, LocalDateTime now) {
+        int moved;
+        do {
+            moved = moveUsageChunk(couponId);
+        } while (moved == usageChunkSize);
+
+        String archivedCode = transactionTemplate.execute(status -> {
+            Coupon coupon = couponRepository.findByIdForUpdate(couponId).orElse(null);
+            if (coupon == null || !isArchivable(coupon, now)) {
+                return null;
+            }
+            // Usages recorded while the chunks were being moved are picked up by the next run
+            if (usageStore.hasUsages(couponId)) {
+                return null;
+            }
+            archivedCouponRepository.copyFromCoupon(couponId);
+            couponRepository.delete(coupon);
+            return coupon.getCode();
+        });
+        if (archivedCode == null) {
+            return false;
+        }
+        metadataCache.evict(archivedCode);
+        return true;
+    }
+
+    private int moveUsageChunk(Long couponId) {
+        Integer moved = transactionTemplate.execute(status -> usageStore.archiveUsages(couponId, usageChunkSize));
+        return moved != null ? moved : 0;
+    }
+
+    private boolean isArchivable(Coupon coupon, LocalDateTime now) {
+        return (coupon.hasExpiredAt(now) || coupon.getCurrentUses() >= coupon.getMaxUses())
+                && coupon.getReservedUses() == 0
+                && leaseRepository.countByCouponId(coupon.getId()) == 0;
+    }
+}
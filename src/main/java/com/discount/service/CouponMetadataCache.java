@@ -0,0 +1,87 @@
+package com.discount.service;
+
+import com.discount.dto.CouponView;
+import com.discount.model.Coupon;
+import com.discount.model.CountryMode;
+import com.discount.model.CountrySet;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Caches the parts of a coupon that never change after creation: its validity window and country
+// set. Redemptions check them before locking the coupon row, so requests from the wrong country or
+// outside the window are turned away without touching the database.
+@Component
+public class CouponMetadataCache {
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final long ttlNanos;
+    private final int maxSize;
+
+    public CouponMetadataCache(@Value("${coupon.metadata-cache.ttl:10m}") Duration ttl,
+                               @Value("${coupon.metadata-cache.max-size:10000}") int maxSize) {
+        this.ttlNanos = ttl.toNanos();
+        this.maxSize = maxSize;
+    }
+
+    public Optional<CouponMetadata> get(String code) {
+        Entry entry = entries.get(code.toUpperCase(Locale.ROOT));
+        if (entry == null) {
+            return Optional.empty();
+        }
+        // Entries expire so that coupons archived by another node are eventually dropped here too
+        if (System.nanoTime() - entry.loadedAt() > ttlNanos) {
+            entries.remove(code.toUpperCase(Locale.ROOT), entry);
+            return Optional.empty();
+        }
+        return Optional.of(entry.metadata());
+    }
+
+    public void put(Coupon coupon) {
+        put(CouponMetadata.of(coupon));
+    }
+
+    public void put(CouponView coupon) {
+        put(new CouponMetadata(coupon.id(), coupon.code(), coupon.countryMode(), coupon.countries(),
+                coupon.validFrom(), coupon.validUntil()));
+    }
+
+    private void put(CouponMetadata metadata) {
+        if (entries.size() >= maxSize) {
+            entries.clear();
+        }
+        entries.put(metadata.code().toUpperCase(Locale.ROOT), new Entry(metadata, System.nanoTime()));
+    }
+
+    public void evict(String code) {
+        entries.remove(code.toUpperCase(Locale.ROOT));
+    }
+
+    public record CouponMetadata(Long id, String code, CountryMode countryMode, CountrySet countries,
+                                 LocalDateTime validFrom, LocalDateTime validUntil) {
+        static CouponMetadata of(Coupon coupon) {
+            return new CouponMetadata(coupon.getId(), coupon.getCode(), coupon.getCountryMode(),
+                    coupon.getCountries(), coupon.getValidFrom(), coupon.getValidUntil());
+        }
+
+        // Same checks, and messages, as the coupon itself
+        public void check(LocalDateTime now, String userCountry) {
+            if (validFrom != null && now.isBefore(validFrom)) {
+                throw new IllegalStateException("Coupon is not yet valid");
+            }
+            if (validUntil != null && !now.isBefore(validUntil)) {
+                throw new IllegalStateException("Coupon has expired");
+            }
+            if (!countryMode.admits(countries, userCountry)) {
+                throw new IllegalArgumentException("Coupon is not valid for your country");
+            }
+        }
+    }
+
+    private record Entry(CouponMetadata metadata, long loadedAt) {}
+}
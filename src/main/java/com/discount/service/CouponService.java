@@ -1,75 +1,217 @@
 package com.discount.service;
 
+import com.discount.dto.CouponView;
+import com.discount.dto.UserCouponHistory;
+import com.discount.dto.UserCouponUsage;
+import com.discount.model.CountryMode;
+import com.discount.model.CountrySet;
 import com.discount.model.Coupon;
-import com.discount.model.CouponUsage;
+import com.discount.repository.ArchivedCouponRepository;
 import com.discount.repository.CouponRepository;
-import com.discount.repository.CouponUsageRepository;
-import jakarta.transaction.Transactional;
+import com.discount.repository.CouponRepository.Watermark;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
 
 @Service
 public class CouponService {
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
+
     private final CouponRepository couponRepository;
-    private final CouponUsageRepository couponUsageRepository;
+    private final UsageStore usageStore;
     private final GeoLocationService geoLocationService;
+    private final QuotaLeaseService quotaLeaseService;
+    private final UsageRollupService usageRollupService;
+    private final ArchivedCouponRepository archivedCouponRepository;
+    private final CouponMetadataCache metadataCache;
+    private final CouponVersionCache versionCache;
+    private final RedemptionGate redemptionGate;
+    private final TransactionTemplate transactionTemplate;
 
     public CouponService(CouponRepository couponRepository, 
-                        CouponUsageRepository couponUsageRepository,
-                        GeoLocationService geoLocationService) {
+                        UsageStore usageStore,
+                        GeoLocationService geoLocationService,
+                        QuotaLeaseService quotaLeaseService,
+                        UsageRollupService usageRollupService,
+                        ArchivedCouponRepository archivedCouponRepository,
+                        CouponMetadataCache metadataCache,
+                        CouponVersionCache versionCache,
+                        RedemptionGate redemptionGate,
+                        PlatformTransactionManager transactionManager) {
         this.couponRepository = couponRepository;
-        this.couponUsageRepository = couponUsageRepository;
+        this.usageStore = usageStore;
         this.geoLocationService = geoLocationService;
+        this.quotaLeaseService = quotaLeaseService;
+        this.usageRollupService = usageRollupService;
+        this.archivedCouponRepository = archivedCouponRepository;
+        this.metadataCache = metadataCache;
+        this.versionCache = versionCache;
+        this.redemptionGate = redemptionGate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     @Transactional
     public Coupon createCoupon(String code, Integer maxUses, String country) {
-        // Check if coupon with same code (case-insensitive) already exists
-        if (couponRepository.findByCodeIgnoreCase(code).isPresent()) {
+        return createCoupon(code, maxUses, country, null, null);
+    }
+
+    @Transactional
+    public Coupon createCoupon(String code, Integer maxUses, String country,
+                               LocalDateTime validFrom, LocalDateTime validUntil) {
+        return createCoupon(code, maxUses, CountryMode.ALLOW,
+                country == null || country.isBlank() ? List.of() : List.of(country), validFrom, validUntil);
+    }
+
+    @Transactional
+    public Coupon createCoupon(String code, Integer maxUses, CountryMode countryMode, Collection<String> countries,
+                               LocalDateTime validFrom, LocalDateTime validUntil) {
+        // Check if coupon with same code (case-insensitive) already exists, archived ones included
+        if (couponRepository.findByCodeIgnoreCase(code).isPresent()
+                || archivedCouponRepository.findByCodeIgnoreCase(code).isPresent()) {
             throw new IllegalStateException("Coupon code already exists");
         }
+
+        if (validFrom != null && validUntil != null && !validFrom.isBefore(validUntil)) {
+            throw new IllegalArgumentException("Coupon validity must end after it starts");
+        }
         
-        Coupon coupon = new Coupon(code, maxUses, country);
+        Coupon coupon = new Coupon(code, maxUses, countryMode, CountrySet.of(countries));
+        coupon.setValidFrom(validFrom);
+        coupon.setValidUntil(validUntil);
+        metadataCache.evict(coupon.getCode());
         return couponRepository.save(coupon);
     }
 
-    @Transactional
+    // Not @Transactional: the usage store prepares the user before the coupon row is locked
     public void useCoupon(String code, String userId, String ipAddress, String country) {
-        Coupon coupon = couponRepository.findByCodeIgnoreCase(code)
-                .orElseThrow(() -> new IllegalArgumentException("Coupon not found"));
+        usageStore.prepareUser(userId);
+        transactionTemplate.executeWithoutResult(status -> redeem(code, userId, ipAddress, country));
+    }
+
+    private void redeem(String code, String userId, String ipAddress, String country) {
+        redemptionGate.admit();
+        // With quota leasing, uses are drawn from a node-local block and the coupon row is not locked
+        boolean leased = quotaLeaseService.isEnabled();
+        LocalDateTime now = LocalDateTime.now();
 
         // If country is provided in the request, use it directly
         // Otherwise, try to determine it from IP address
-        String userCountry = country != null ? country.toUpperCase() : 
-            geoLocationService.getCountryFromIp(ipAddress);
+        String userCountry = geoLocationService.resolveCountry(country, ipAddress);
+
+        // Turn away wrong-country and out-of-window requests before the coupon row is locked
+        metadataCache.get(code).ifPresent(metadata -> metadata.check(now, userCountry));
+
+        Coupon coupon = (leased ? couponRepository.findByCodeIgnoreCaseWithoutLock(code) : couponRepository.findByCodeIgnoreCase(code))
+                .orElseThrow(() -> archivedCouponRepository.findByCodeIgnoreCase(code).isPresent()
+                        ? new IllegalStateException("Coupon is no longer active")
+                        : new IllegalArgumentException("Coupon not found"));
+        metadataCache.put(coupon);
+
+        coupon.checkValidAt(now);
 
         // Only validate country if the coupon has a country restriction
-        if (coupon.getCountry() != null && !coupon.getCountry().isEmpty() && 
-            !coupon.getCountry().equalsIgnoreCase(userCountry)) {
+        if (!coupon.isValidForCountry(userCountry)) {
             throw new IllegalArgumentException("Coupon is not valid for your country");
         }
 
-        if (!coupon.isAvailable()) {
+        if (!leased && !coupon.isAvailable()) {
             throw new IllegalStateException("Coupon has reached maximum uses");
         }
 
-        if (couponUsageRepository.findByCouponIdAndUserId(coupon.getId(), userId).isPresent()) {
+        if (usageStore.hasUsed(coupon.getId(), userId)) {
             throw new IllegalStateException("User has already used this coupon");
         }
 
-        coupon.incrementUses();
-        couponRepository.save(coupon);
-        couponUsageRepository.save(new CouponUsage(coupon, userId));
+        if (leased) {
+            quotaLeaseService.redeem(coupon, userId);
+        } else {
+            coupon.incrementUses();
+            couponRepository.save(coupon);
+            usageStore.record(coupon, userId);
+        }
+        usageRollupService.record(coupon.getId(), userCountry);
     }
 
-    public List<Coupon> getAllCoupons() {
-        return couponRepository.findAll();
+    // Read-only transactions may be served by a replica when read/write routing is enabled
+    @Transactional(readOnly = true)
+    public List<CouponView> getAllCoupons() {
+        return couponRepository.findAllViews();
     }
 
-    @Transactional
-    public Coupon getCouponByCode(String code) {
-        return couponRepository.findByCodeIgnoreCase(code)
+    // Archived coupons are still served
+    @Transactional(readOnly = true)
+    public CouponView getCouponByCode(String code) {
+        Optional<CouponView> coupon = couponRepository.findViewByCodeIgnoreCase(code);
+        coupon.ifPresent(found -> {
+            metadataCache.put(found);
+            versionCache.record(found.id(), found.version());
+        });
+        return coupon
+                .or(() -> archivedCouponRepository.findViewByCodeIgnoreCase(code))
                 .orElseThrow(() -> new IllegalArgumentException("Coupon not found"));
     }
-} 
\ No newline at end of file
+
+    // The ETag of a coupon whose version is cached, answered without a database round trip
+    public Optional<String> findCachedETag(String code) {
+        return metadataCache.get(code).flatMap(metadata -> {
+            OptionalLong version = versionCache.get(metadata.id());
+            return version.isPresent()
+                    ? Optional.of(CouponVersionCache.eTag(metadata.id(), version.getAsLong()))
+                    : Optional.empty();
+        });
+    }
+
+    @Transactional(readOnly = true)
+    public String getCouponsETag() {
+        Watermark watermark = couponRepository.findWatermark();
+        return "\"" + watermark.count() + "-" + watermark.versionSum() + "-" + watermark.maxId() + "\"";
+    }
+
+    @Transactional(readOnly = true)
+    public UserCouponHistory getUserCouponHistory(String userId, String cursor, int limit) {
+        int pageSize = Math.min(Math.max(limit, 1), MAX_HISTORY_PAGE_SIZE);
+        // Fetch one extra row to learn whether another page follows
+        List<UserCouponUsage> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = usageStore.findHistory(userId, null, null, pageSize + 1);
+        } else {
+            HistoryCursor position = HistoryCursor.decode(cursor);
+            rows = usageStore.findHistory(userId, position.usedAt(), position.couponId(), pageSize + 1);
+        }
+
+        if (rows.size() <= pageSize) {
+            return new UserCouponHistory(userId, rows, null);
+        }
+        List<UserCouponUsage> items = rows.subList(0, pageSize);
+        UserCouponUsage last = items.get(pageSize - 1);
+        return new UserCouponHistory(userId, items, new HistoryCursor(last.usedAt(), last.couponId()).encode());
+    }
+
+    private record HistoryCursor(LocalDateTime usedAt, Long couponId) {
+        String encode() {
+            String position = usedAt + "|" + couponId;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static HistoryCursor decode(String cursor) {
+            try {
+                String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = position.indexOf('|');
+                return new HistoryCursor(LocalDateTime.parse(position.substring(0, separator)),
+                        Long.valueOf(position.substring(separator + 1)));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+    }
+}
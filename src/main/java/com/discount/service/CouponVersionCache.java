@@ -0,0 +1,63 @@
+package com.discount.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Latest known @Version of each coupon, so conditional GETs can be answered without loading it.
+// Commits may be reported out of order, so an older version never replaces a newer one. Changes
+// made by other nodes are not seen here; entries expire after the ttl to bound that staleness.
+@Component
+public class CouponVersionCache {
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final long ttlNanos;
+    private final int maxSize;
+
+    public CouponVersionCache(@Value("${coupon.version-cache.ttl:5s}") Duration ttl,
+                              @Value("${coupon.version-cache.max-size:10000}") int maxSize) {
+        this.ttlNanos = ttl.toNanos();
+        this.maxSize = maxSize;
+    }
+
+    public OptionalLong get(Long couponId) {
+        Entry entry = entries.get(couponId);
+        if (entry == null) {
+            return OptionalLong.empty();
+        }
+        if (isExpired(entry, System.nanoTime())) {
+            entries.remove(couponId, entry);
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(entry.version());
+    }
+
+    public void record(Long couponId, Long version) {
+        if (couponId == null || version == null) {
+            return;
+        }
+        if (entries.size() >= maxSize) {
+            entries.clear();
+        }
+        long now = System.nanoTime();
+        entries.merge(couponId, new Entry(version, now), (current, next) ->
+                next.version() >= current.version() || isExpired(current, now) ? next : current);
+    }
+
+    public void evict(Long couponId) {
+        entries.remove(couponId);
+    }
+
+    public static String eTag(Long couponId, long version) {
+        return "\"" + couponId + "-" + version + "\"";
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return now - entry.recordedAt() > ttlNanos;
+    }
+
+    private record Entry(long version, long recordedAt) {}
+}
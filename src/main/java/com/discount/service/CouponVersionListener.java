@@ -0,0 +1,50 @@
+package com.discount.service;
+
+import com.discount.model.Coupon;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Keeps CouponVersionCache in step with committed changes. Bulk updates bypass entity callbacks;
+// their callers evict the coupon instead.
+@Component
+public class CouponVersionListener {
+    private final ObjectProvider<CouponVersionCache> cache;
+
+    public CouponVersionListener(ObjectProvider<CouponVersionCache> cache) {
+        this.cache = cache;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void couponSaved(Coupon coupon) {
+        Long couponId = coupon.getId();
+        Long version = coupon.getVersion();
+        afterCommit(() -> cache.ifAvailable(c -> c.record(couponId, version)));
+    }
+
+    @PostRemove
+    public void couponRemoved(Coupon coupon) {
+        Long couponId = coupon.getId();
+        // Evicting early is always safe; evicting again after the commit drops a version recorded meanwhile
+        cache.ifAvailable(c -> c.evict(couponId));
+        afterCommit(() -> cache.ifAvailable(c -> c.evict(couponId)));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,9 @@
+package com.discount.service;
+
+// In-memory redemption state that has to reach the database before the instance shuts down
+public interface FlushableBuffer {
+    String bufferName();
+
+    // Returns how many entries were written
+    int flush();
+}
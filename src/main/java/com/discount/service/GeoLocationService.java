@@ -32,6 +32,11 @@ public class GeoLocationService {
         }
     }
 
+    // A country supplied with the request takes precedence over IP-based detection
+    public String resolveCountry(String declaredCountry, String ipAddress) {
+        return declaredCountry != null ? declaredCountry.toUpperCase() : getCountryFromIp(ipAddress);
+    }
+
     private boolean isValidIpAddress(String ipAddress) {
         if (ipAddress == null || ipAddress.isEmpty()) {
             return false;
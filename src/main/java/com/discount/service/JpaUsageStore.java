@@ -0,0 +1,142 @@
+package com.discount.service;
+
+import com.discount.dto.UserCouponUsage;
+import com.discount.model.Coupon;
+import com.discount.model.CouponUsage;
+import com.discount.repository.ArchivedCouponUsageRepository;
+import com.discount.repository.CouponUsageRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+@Service
+@ConditionalOnProperty(name = "coupon.usage.storage", havingValue = "standard", matchIfMissing = true)
+public class JpaUsageStore implements UsageStore {
+    private static final int EXPORT_FETCH_SIZE = 10_000;
+
+    private final CouponUsageRepository couponUsageRepository;
+    private final ArchivedCouponUsageRepository archivedCouponUsageRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    public JpaUsageStore(CouponUsageRepository couponUsageRepository,
+                         ArchivedCouponUsageRepository archivedCouponUsageRepository,
+                         DataSource dataSource) {
+        this.couponUsageRepository = couponUsageRepository;
+        this.archivedCouponUsageRepository = archivedCouponUsageRepository;
+        // Snapshots stream every usage, so read them in chunks rather than all at once
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(EXPORT_FETCH_SIZE);
+    }
+
+    @Override
+    public boolean hasUsed(Long couponId, String userId) {
+        return couponUsageRepository.findByCouponIdAndUserId(couponId, userId).isPresent();
+    }
+
+    @Override
+    public void record(Coupon coupon, String userId) {
+        couponUsageRepository.save(new CouponUsage(coupon, userId));
+    }
+
+    @Override
+    public List<UserCouponUsage> findHistory(String userId, LocalDateTime usedAt, Long couponId, int limit) {
+        PageRequest page = PageRequest.ofSize(limit);
+        if (usedAt == null) {
+            return UsageStore.mergeHistory(couponUsageRepository.findHistoryByUserId(userId, page),
+                    archivedCouponUsageRepository.findHistoryByUserId(userId, page), limit);
+        }
+        return UsageStore.mergeHistory(couponUsageRepository.findHistoryByUserIdAfter(userId, usedAt, couponId, page),
+                archivedCouponUsageRepository.findHistoryByUserIdAfter(userId, usedAt, couponId, page), limit);
+    }
+
+    @Override
+    public boolean hasUsages(Long couponId) {
+        return !couponUsageRepository.findIdsByCouponId(couponId, PageRequest.ofSize(1)).isEmpty();
+    }
+
+    @Override
+    public int archiveUsages(Long couponId, int limit) {
+        List<Long> ids = couponUsageRepository.findIdsByCouponId(couponId, PageRequest.ofSize(limit));
+        if (!ids.isEmpty()) {
+            archivedCouponUsageRepository.copyFromCouponUsage(ids);
+            couponUsageRepository.deleteByIds(ids);
+        }
+        return ids.size();
+    }
+
+    @Override
+    public long countUsages() {
+        return couponUsageRepository.count();
+    }
+
+    @Override
+    public long countArchivedUsages() {
+        return archivedCouponUsageRepository.count();
+    }
+
+    @Override
+    public void exportUsages(Consumer<UsageRecord> consumer) {
+        export("coupon_usage", consumer);
+    }
+
+    @Override
+    public void exportArchivedUsages(Consumer<UsageRecord> consumer) {
+        export("coupon_usage_archive", consumer);
+    }
+
+    @Override
+    public void importUsages(List<UsageRecord> usages) {
+        jdbcTemplate.batchUpdate("INSERT INTO coupon_usage (coupon_id, user_id, used_at) VALUES (?, ?, ?)",
+            usages, usages.size(), (statement, usage) -> {
+                statement.setLong(1, usage.couponId());
+                statement.setString(2, usage.userId());
+                statement.setObject(3, usage.usedAt());
+            });
+    }
+
+    @Override
+    public void importArchivedUsages(List<UsageRecord> usages, long firstId) {
+        jdbcTemplate.batchUpdate("INSERT INTO coupon_usage_archive (id, coupon_id, user_id, used_at) VALUES (?, ?, ?, ?)",
+            new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement statement, int i) throws SQLException {
+                    UsageRecord usage = usages.get(i);
+                    statement.setLong(1, firstId + i);
+                    statement.setLong(2, usage.couponId());
+                    statement.setString(3, usage.userId());
+                    statement.setObject(4, usage.usedAt());
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return usages.size();
+                }
+            });
+    }
+
+    @Override
+    public void restartUsageIds(long nextId) {
+        jdbcTemplate.execute("ALTER TABLE coupon_usage ALTER COLUMN id RESTART WITH " + nextId);
+    }
+
+    @Override
+    public void deleteAllUsages() {
+        jdbcTemplate.update("DELETE FROM coupon_usage_archive");
+        jdbcTemplate.update("DELETE FROM coupon_usage");
+    }
+
+    private void export(String table, Consumer<UsageRecord> consumer) {
+        jdbcTemplate.query("SELECT coupon_id, user_id, used_at FROM " + table, (RowCallbackHandler) row ->
+            consumer.accept(new UsageRecord(row.getLong(1), row.getString(2), row.getObject(3, LocalDateTime.class))));
+    }
+}
@@ -0,0 +1,341 @@
+package com.discount.service;
+
+import com.discount.model.Coupon;
+import com.discount.model.CouponLease;
+import com.discount.repository.CouponLeaseRepository;
+import com.discount.repository.CouponRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Cross-node quota leasing: each node takes blocks of uses from a coupon's budget with one
+// conditional update and hands them out locally, so redemptions do not lock the coupon row.
+// Each redemption still counts itself on the node's own lease row, inside its transaction. That
+// row lock makes one node's redemptions of a coupon wait for each other's commits, but never
+// for other nodes. It is deliberate: a lease reclaimed from a crashed node must hand back only
+// the uses that were not consumed, and consumption counted in memory would be lost with the node,
+// letting the coupon go over maxUses.
+@Service
+public class QuotaLeaseService implements FlushableBuffer {
+    private static final Logger log = LoggerFactory.getLogger(QuotaLeaseService.class);
+    private static final int MAX_ATTEMPTS = 5;
+    private static final Duration ACQUISITION_WAIT = Duration.ofSeconds(5);
+
+    private final CouponRepository couponRepository;
+    private final UsageStore usageStore;
+    private final CouponLeaseRepository leaseRepository;
+    private final RemainingUsesHub remainingUsesHub;
+    private final CouponVersionCache versionCache;
+    private final TransactionTemplate leaseTransaction;
+    private final boolean enabled;
+    private final int blockSize;
+    private final Duration leaseTtl;
+    private final Duration reclaimGrace;
+    private final String nodeId;
+    private final Map<Long, LocalLease> leases = new ConcurrentHashMap<>();
+    private final Map<Long, CompletableFuture<Void>> acquisitions = new ConcurrentHashMap<>();
+
+    public QuotaLeaseService(CouponRepository couponRepository,
+                             UsageStore usageStore,
+                             CouponLeaseRepository leaseRepository,
+                             RemainingUsesHub remainingUsesHub,
+                             CouponVersionCache versionCache,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${coupon.leasing.enabled:false}") boolean enabled,
+                             @Value("${coupon.leasing.block-size:50}") int blockSize,
+                             @Value("${coupon.leasing.ttl:30s}") Duration leaseTtl,
+                             @Value("${coupon.leasing.reclaim-grace:10s}") Duration reclaimGrace,
+                             @Value("${coupon.leasing.node-id:}") String nodeId) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Lease block size must be at least 1");
+        }
+        this.couponRepository = couponRepository;
+        this.usageStore = usageStore;
+        this.leaseRepository = leaseRepository;
+        this.remainingUsesHub = remainingUsesHub;
+        this.versionCache = versionCache;
+        // Returning leases commits on its own, independent of any surrounding transaction
+        this.leaseTransaction = new TransactionTemplate(transactionManager);
+        this.leaseTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = enabled;
+        this.blockSize = blockSize;
+        this.leaseTtl = leaseTtl;
+        this.reclaimGrace = reclaimGrace;
+        this.nodeId = nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    // Must run inside the redemption transaction; the usage row and the lease consumption
+    // commit or roll back together.
+    public void redeem(Coupon coupon, String userId) {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            LocalLease lease = leases.get(coupon.getId());
+            if (lease == null || !lease.tryTake(System.currentTimeMillis())) {
+                lease = acquireOrAwait(coupon.getId());
+                if (lease == null) {
+                    continue;
+                }
+            }
+            if (leaseRepository.consumeOne(lease.id) == 0) {
+                // The lease was returned or reclaimed underneath us; retire it and lease again
+                lease.retire();
+                leases.remove(coupon.getId(), lease);
+                continue;
+            }
+            giveBackOnRollback(lease);
+            try {
+                usageStore.record(coupon, userId);
+            } catch (DataIntegrityViolationException e) {
+                // Another node recorded this user first
+                throw new IllegalStateException("User has already used this coupon");
+            }
+            return;
+        }
+        throw new IllegalStateException("Could not obtain a coupon lease");
+    }
+
+    @Override
+    public String bufferName() {
+        return "leased uses";
+    }
+
+    // Unused leased uses go back to their coupons
+    @Override
+    public int flush() {
+        return enabled ? returnAll() : 0;
+    }
+
+    // Returns every lease this node holds, e.g. on shutdown
+    public int returnAll() {
+        leases.values().forEach(LocalLease::retire);
+        leases.clear();
+        int returned = 0;
+        for (Long leaseId : leaseRepository.findIdsByNodeId(nodeId)) {
+            returned += returnLease(leaseId);
+        }
+        return returned;
+    }
+
+    @Scheduled(fixedDelayString = "${coupon.leasing.sweep-interval-ms:5000}")
+    public void sweep() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        leases.values().removeIf(lease -> {
+            if (lease.isUsable(now)) {
+                return false;
+            }
+            lease.retire();
+            return true;
+        });
+        // Own leases are returned as soon as they are retired; other nodes get a grace period
+        // before their expired leases are reclaimed, in case they are merely slow
+        for (Long leaseId : leaseRepository.findIdsByNodeId(nodeId)) {
+            if (!isHeldLocally(leaseId)) {
+                returnLease(leaseId);
+            }
+        }
+        for (Long leaseId : leaseRepository.findIdsExpiredBefore(now - reclaimGrace.toMillis())) {
+            returnLease(leaseId);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void returnLeasesFromPreviousRun() {
+        if (enabled) {
+            int returned = returnAll();
+            if (returned > 0) {
+                log.info("Returned {} unused uses leased by a previous run of node {}", returned, nodeId);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (enabled) {
+            int returned = returnAll();
+            log.info("Node {} returned {} unused leased uses", nodeId, returned);
+        }
+    }
+
+    // Leases a new block inside the caller's transaction. The allocation holds the coupon row lock
+    // until that redemption commits, so other local callers wait for its outcome instead of each
+    // leasing a block of their own; waiting needs no extra connection, so the pool cannot starve.
+    private LocalLease acquireOrAwait(Long couponId) {
+        CompletableFuture<Void> acquisition = new CompletableFuture<>();
+        CompletableFuture<Void> inFlight = acquisitions.putIfAbsent(couponId, acquisition);
+        if (inFlight != null) {
+            try {
+                inFlight.get(ACQUISITION_WAIT.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Could not obtain a coupon lease");
+            } catch (ExecutionException | TimeoutException e) {
+                throw new IllegalStateException("Could not obtain a coupon lease");
+            }
+            return null;
+        }
+
+        LocalLease lease;
+        try {
+            lease = allocate(couponId);
+        } catch (RuntimeException e) {
+            finishAcquisition(couponId, acquisition);
+            throw e;
+        }
+        if (lease == null) {
+            finishAcquisition(couponId, acquisition);
+            throw new IllegalStateException("Coupon has reached maximum uses");
+        }
+        lease.tryTake(System.currentTimeMillis());
+        LocalLease acquired = lease;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    LocalLease previous = leases.put(couponId, acquired);
+                    if (previous != null) {
+                        previous.retire();
+                    }
+                    versionCache.evict(couponId);
+                    remainingUsesHub.refresh(couponId);
+                }
+                finishAcquisition(couponId, acquisition);
+            }
+        });
+        return lease;
+    }
+
+    private LocalLease allocate(Long couponId) {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            int remaining = couponRepository.findRemainingUses(couponId).orElse(0);
+            int uses = Math.min(blockSize, remaining);
+            if (uses <= 0) {
+                return null;
+            }
+            if (couponRepository.allocateUses(couponId, uses) == 1) {
+                Instant expiresAt = Instant.now().plus(leaseTtl);
+                CouponLease lease = leaseRepository.save(new CouponLease(couponId, nodeId, uses, expiresAt));
+                log.debug("Node {} leased {} uses of coupon {}", nodeId, uses, couponId);
+                return new LocalLease(lease.getId(), uses, expiresAt.toEpochMilli());
+            }
+        }
+        return null;
+    }
+
+    private void finishAcquisition(Long couponId, CompletableFuture<Void> acquisition) {
+        acquisitions.remove(couponId, acquisition);
+        acquisition.complete(null);
+    }
+
+    private int returnLease(Long leaseId) {
+        CouponLease returned = leaseTransaction.execute(status -> {
+            CouponLease lease = leaseRepository.findByIdForUpdate(leaseId).orElse(null);
+            if (lease == null) {
+                return null;
+            }
+            if (lease.getUnused() > 0 && couponRepository.returnUses(lease.getCouponId(), lease.getUnused()) == 0) {
+                // The coupon counts fewer uses than the lease holds back; keep the lease, and with it a
+                // record of the uses, for the next sweep rather than dropping them from the budget
+                log.error("Could not return {} unused uses of lease {} to coupon {}, keeping the lease",
+                        lease.getUnused(), leaseId, lease.getCouponId());
+                return null;
+            }
+            leaseRepository.delete(lease);
+            return lease;
+        });
+        if (returned == null || returned.getUnused() == 0) {
+            return 0;
+        }
+        versionCache.evict(returned.getCouponId());
+        remainingUsesHub.refresh(returned.getCouponId());
+        return returned.getUnused();
+    }
+
+    private boolean isHeldLocally(Long leaseId) {
+        return leases.values().stream().anyMatch(lease -> lease.id.equals(leaseId));
+    }
+
+    private static void giveBackOnRollback(LocalLease lease) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    lease.giveBack();
+                }
+            }
+        });
+    }
+
+    private static final class LocalLease {
+        private final Long id;
+        private final AtomicInteger remaining;
+        private final long expiresAt;
+        private volatile boolean retired;
+
+        LocalLease(Long id, int granted, long expiresAt) {
+            this.id = id;
+            this.remaining = new AtomicInteger(granted);
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isUsable(long now) {
+            return !retired && now < expiresAt;
+        }
+
+        boolean tryTake(long now) {
+            if (!isUsable(now)) {
+                return false;
+            }
+            int current;
+            do {
+                current = remaining.get();
+                if (current <= 0) {
+                    return false;
+                }
+            } while (!remaining.compareAndSet(current, current - 1));
+            return true;
+        }
+
+        void giveBack() {
+            remaining.incrementAndGet();
+        }
+
+        void retire() {
+            retired = true;
+        }
+    }
+}
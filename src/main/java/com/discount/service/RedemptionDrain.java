@@ -0,0 +1,91 @@
+package com.discount.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Drains redemptions on shutdown: stops admitting new ones, waits up to the timeout for those in
+// flight, then flushes every buffer. Stops before the web server's graceful shutdown
+// (DEFAULT_PHASE - 1024), so late redemptions get a 503 and can be retried elsewhere while
+// requests already accepted complete.
+@Component
+public class RedemptionDrain implements SmartLifecycle {
+    private static final Logger log = LoggerFactory.getLogger(RedemptionDrain.class);
+    private static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 512;
+
+    private final RedemptionGate gate;
+    private final List<FlushableBuffer> buffers;
+    private final Duration timeout;
+    private volatile boolean running;
+
+    public RedemptionDrain(RedemptionGate gate,
+                           List<FlushableBuffer> buffers,
+                           @Value("${coupon.drain.timeout:20s}") Duration timeout) {
+        this.gate = gate;
+        this.buffers = buffers;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public void start() {
+        gate.open();
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        try {
+            drain();
+        } finally {
+            running = false;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    public DrainReport drain() {
+        long start = System.nanoTime();
+        int inFlightAtClose = gate.close();
+        boolean drained;
+        try {
+            drained = gate.awaitDrained(timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            drained = false;
+        }
+        if (!drained) {
+            log.warn("{} redemptions still in flight after {}, flushing anyway", gate.inFlight(), timeout);
+        }
+
+        Map<String, Integer> flushed = new LinkedHashMap<>();
+        for (FlushableBuffer buffer : buffers) {
+            try {
+                flushed.put(buffer.bufferName(), buffer.flush());
+            } catch (RuntimeException e) {
+                log.error("Failed to flush {} on shutdown", buffer.bufferName(), e);
+            }
+        }
+        DrainReport report = new DrainReport(inFlightAtClose, gate.inFlight(), flushed,
+                (System.nanoTime() - start) / 1_000_000);
+        log.info("Drained {} in-flight redemptions ({} left) and flushed {} in {} ms",
+                report.inFlightAtClose(), report.stillInFlight(), report.flushed(), report.durationMillis());
+        return report;
+    }
+
+    public record DrainReport(int inFlightAtClose, int stillInFlight, Map<String, Integer> flushed, long durationMillis) {}
+}
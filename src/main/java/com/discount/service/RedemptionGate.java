@@ -0,0 +1,80 @@
+package com.discount.service;
+
+import com.discount.exception.ServiceDrainingException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Admits redemptions while open and counts those in flight; a redemption counts until its
+// transaction has completed, so waiting for the count to reach zero also waits for the commits.
+@Component
+public class RedemptionGate {
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Object drained = new Object();
+    private volatile boolean closed;
+
+    // Must be called inside the redemption transaction
+    public void admit() {
+        inFlight.incrementAndGet();
+        // Counted before checking, so a drain that closed the gate either sees this redemption or turns it away
+        if (closed) {
+            exit();
+            throw new ServiceDrainingException("Service is shutting down, please retry");
+        }
+        try {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    exit();
+                }
+            });
+        } catch (IllegalStateException e) {
+            exit();
+            throw e;
+        }
+    }
+
+    // Returns how many redemptions were in flight when the gate closed
+    public int close() {
+        closed = true;
+        return inFlight.get();
+    }
+
+    public void open() {
+        closed = false;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    public boolean awaitDrained(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (drained) {
+            while (inFlight.get() > 0) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(drained, remaining);
+            }
+        }
+        return true;
+    }
+
+    private void exit() {
+        if (inFlight.decrementAndGet() == 0) {
+            synchronized (drained) {
+                drained.notifyAll();
+            }
+        }
+    }
+}
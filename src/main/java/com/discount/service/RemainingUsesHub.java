@@ -0,0 +1,276 @@
+package com.discount.service;
+
+import com.discount.model.Coupon;
+import com.discount.repository.CouponRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Fans remaining-uses changes out to Server-Sent Events subscribers. Connections are held by the
+// servlet container's async support, not by threads; a single scheduler thread decides what to send,
+// at most one update per code per min-interval, always carrying the newest value. The blocking
+// writes happen on virtual threads, one subscriber at a time, so a slow client only delays itself.
+@Service
+public class RemainingUsesHub {
+    private static final Logger log = LoggerFactory.getLogger(RemainingUsesHub.class);
+    private static final int MAX_CODES_PER_SUBSCRIPTION = 50;
+    // A client this far behind is not reading its stream
+    private static final int MAX_PENDING_EVENTS = 100;
+
+    private final CouponRepository couponRepository;
+    private final long minIntervalNanos;
+    private final Duration emitterTimeout;
+    // Keyed by id: a code that is archived and created again starts a new version sequence
+    private final Map<Long, Topic> topics = new ConcurrentHashMap<>();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService sender = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("remaining-uses-sender-", 0).factory());
+
+    public RemainingUsesHub(CouponRepository couponRepository,
+                            @Value("${coupon.live.min-interval:1s}") Duration minInterval,
+                            @Value("${coupon.live.emitter-timeout:30m}") Duration emitterTimeout,
+                            @Value("${coupon.live.heartbeat-interval:15s}") Duration heartbeatInterval) {
+        this.couponRepository = couponRepository;
+        this.minIntervalNanos = minInterval.toNanos();
+        this.emitterTimeout = emitterTimeout;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "remaining-uses-hub");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Heartbeats keep proxies from closing idle streams and reveal clients that went away
+        scheduler.scheduleAtFixedRate(this::sendHeartbeats, heartbeatInterval.toNanos(),
+                heartbeatInterval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    public SseEmitter subscribe(List<String> codes) {
+        if (codes.isEmpty() || codes.size() > MAX_CODES_PER_SUBSCRIPTION) {
+            throw new IllegalArgumentException("Subscribe to between 1 and " + MAX_CODES_PER_SUBSCRIPTION + " coupon codes");
+        }
+        Map<String, Coupon> coupons = new LinkedHashMap<>();
+        for (String code : codes) {
+            Coupon coupon = couponRepository.findByCodeIgnoreCaseWithoutLock(code)
+                    .orElseThrow(() -> new IllegalArgumentException("Coupon not found"));
+            coupons.put(coupon.getCode(), coupon);
+        }
+
+        Subscriber subscriber = new Subscriber(new SseEmitter(emitterTimeout.toMillis()));
+        subscriber.emitter.onCompletion(() -> unsubscribe(subscriber));
+        subscriber.emitter.onTimeout(() -> unsubscribe(subscriber));
+        subscriber.emitter.onError(error -> unsubscribe(subscriber));
+        subscribers.add(subscriber);
+        for (Coupon coupon : coupons.values()) {
+            Topic topic = topics.compute(coupon.getId(), (id, existing) -> {
+                Topic current = existing != null ? existing : new Topic(id, coupon.getCode());
+                current.subscribers.add(subscriber);
+                return current;
+            });
+            subscriber.topics.add(topic);
+            RemainingUses initial = new RemainingUses(coupon.getCode(), remainingUses(coupon));
+            topic.offer(coupon.getVersion(), initial);
+            send(subscriber, coupon.getVersion(), initial);
+        }
+        return subscriber.emitter;
+    }
+
+    // Called after a change to the coupon row has committed
+    public void publish(Long couponId, Long version, int remainingUses) {
+        Topic topic = topics.get(couponId);
+        if (topic != null && topic.offer(version, new RemainingUses(topic.code, remainingUses))) {
+            schedule(topic);
+        }
+    }
+
+    public void publish(Coupon coupon) {
+        publish(coupon.getId(), coupon.getVersion(), remainingUses(coupon));
+    }
+
+    // For changes made by bulk updates, which carry no entity; re-reads the row off the caller's thread
+    public void refresh(Long couponId) {
+        if (topics.containsKey(couponId)) {
+            scheduler.execute(() -> {
+                try {
+                    couponRepository.findById(couponId).ifPresent(this::publish);
+                } catch (RuntimeException e) {
+                    log.warn("Could not refresh remaining uses of coupon {}", couponId, e);
+                }
+            });
+        }
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        sender.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    private void schedule(Topic topic) {
+        long delay = topic.claimFlush(System.nanoTime(), minIntervalNanos);
+        if (delay >= 0) {
+            scheduler.schedule(() -> flush(topic), delay, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void flush(Topic topic) {
+        Topic.Update update = topic.takeUpdate(System.nanoTime());
+        if (update != null) {
+            topic.subscribers.forEach(subscriber -> send(subscriber, update.version(), update.value()));
+        }
+    }
+
+    private void sendHeartbeats() {
+        for (Subscriber subscriber : subscribers) {
+            enqueue(subscriber, SseEmitter.event().comment("heartbeat"));
+        }
+    }
+
+    private void send(Subscriber subscriber, Long version, RemainingUses value) {
+        enqueue(subscriber, SseEmitter.event()
+                .name("remaining-uses")
+                .id(String.valueOf(version))
+                .data(value, MediaType.APPLICATION_JSON));
+    }
+
+    private void enqueue(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        if (subscriber.pendingCount.incrementAndGet() > MAX_PENDING_EVENTS) {
+            drop(subscriber);
+            return;
+        }
+        subscriber.pending.add(event);
+        if (subscriber.writing.compareAndSet(false, true)) {
+            sender.execute(() -> write(subscriber));
+        }
+    }
+
+    // Writes a subscriber's events in order; only one writer runs per subscriber at a time
+    private void write(Subscriber subscriber) {
+        do {
+            SseEmitter.SseEventBuilder event;
+            while ((event = subscriber.pending.poll()) != null) {
+                subscriber.pendingCount.decrementAndGet();
+                try {
+                    subscriber.emitter.send(event);
+                } catch (IOException | IllegalStateException e) {
+                    drop(subscriber);
+                    subscriber.pending.clear();
+                    subscriber.writing.set(false);
+                    return;
+                }
+            }
+            subscriber.writing.set(false);
+            // An event added after the last poll may have found the writer still running
+        } while (!subscriber.pending.isEmpty() && subscriber.writing.compareAndSet(false, true));
+    }
+
+    private void drop(Subscriber subscriber) {
+        unsubscribe(subscriber);
+        subscriber.emitter.completeWithError(new IOException("Subscriber went away"));
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (!subscribers.remove(subscriber)) {
+            return;
+        }
+        for (Topic topic : subscriber.topics) {
+            topics.computeIfPresent(topic.couponId, (id, current) -> {
+                current.subscribers.remove(subscriber);
+                return current.subscribers.isEmpty() ? null : current;
+            });
+        }
+    }
+
+    public static int remainingUses(Coupon coupon) {
+        return Math.max(coupon.getMaxUses() - coupon.getCurrentUses() - coupon.getReservedUses(), 0);
+    }
+
+    public record RemainingUses(String code, int remainingUses) {}
+
+    // Identity equality: the topics list grows after the subscriber is registered
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final List<Topic> topics = new CopyOnWriteArrayList<>();
+        private final Queue<SseEmitter.SseEventBuilder> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingCount = new AtomicInteger();
+        private final AtomicBoolean writing = new AtomicBoolean();
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+
+    private static final class Topic {
+        private final Long couponId;
+        private final String code;
+        private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        private long latestVersion = -1;
+        private RemainingUses latest;
+        private long sentVersion = -1;
+        private long lastSentNanos;
+        private boolean flushScheduled;
+
+        Topic(Long couponId, String code) {
+            this.couponId = couponId;
+            this.code = code;
+            this.lastSentNanos = System.nanoTime() - Long.MAX_VALUE / 2;
+        }
+
+        // Commits can be observed out of order; the version decides which value is newest
+        synchronized boolean offer(Long version, RemainingUses value) {
+            long newVersion = version != null ? version : 0;
+            if (newVersion <= latestVersion) {
+                return false;
+            }
+            latestVersion = newVersion;
+            latest = value;
+            return true;
+        }
+
+        // Returns the delay before the next flush, or -1 if one is already pending
+        synchronized long claimFlush(long now, long minIntervalNanos) {
+            if (flushScheduled) {
+                return -1;
+            }
+            flushScheduled = true;
+            return Math.max(lastSentNanos + minIntervalNanos - now, 0);
+        }
+
+        synchronized Update takeUpdate(long now) {
+            flushScheduled = false;
+            if (latestVersion == sentVersion) {
+                return null;
+            }
+            sentVersion = latestVersion;
+            lastSentNanos = now;
+            return new Update(latestVersion, latest);
+        }
+
+        record Update(long version, RemainingUses value) {}
+    }
+}
@@ -0,0 +1,37 @@
+package com.discount.service;
+
+import com.discount.model.Coupon;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// JPA entity listener, instantiated by Spring through Hibernate's bean container. The hub is
+// looked up lazily because entity listeners are created while the EntityManagerFactory is built.
+@Component
+public class RemainingUsesListener {
+    private final ObjectProvider<RemainingUsesHub> hub;
+
+    public RemainingUsesListener(ObjectProvider<RemainingUsesHub> hub) {
+        this.hub = hub;
+    }
+
+    @PostUpdate
+    public void couponUpdated(Coupon coupon) {
+        // Capture what was written now; the entity may change again before the commit
+        Long couponId = coupon.getId();
+        Long version = coupon.getVersion();
+        int remainingUses = RemainingUsesHub.remainingUses(coupon);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            hub.ifAvailable(h -> h.publish(couponId, version, remainingUses));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                hub.ifAvailable(h -> h.publish(couponId, version, remainingUses));
+            }
+        });
+    }
+}
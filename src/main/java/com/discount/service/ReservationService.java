@@ -0,0 +1,257 @@
+package com.discount.service;
+
+import com.discount.model.Coupon;
+import com.discount.model.CouponReservation;
+import com.discount.repository.CouponRepository;
+import com.discount.repository.CouponReservationRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+public class ReservationService {
+    private static final Logger log = LoggerFactory.getLogger(ReservationService.class);
+    private static final Duration EXPIRY_RETRY_DELAY = Duration.ofSeconds(1);
+
+    private final CouponRepository couponRepository;
+    private final UsageStore usageStore;
+    private final CouponReservationRepository reservationRepository;
+    private final GeoLocationService geoLocationService;
+    private final UsageRollupService usageRollupService;
+    private final CouponMetadataCache metadataCache;
+    private final HashedTimerWheel expiryWheel;
+    private final ExecutorService expiryExecutor;
+    private final RedemptionGate redemptionGate;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration ttl;
+    private final Map<Long, HashedTimerWheel.Timeout> expiryTimeouts = new ConcurrentHashMap<>();
+
+    public ReservationService(CouponRepository couponRepository,
+                              UsageStore usageStore,
+                              CouponReservationRepository reservationRepository,
+                              GeoLocationService geoLocationService,
+                              UsageRollupService usageRollupService,
+                              CouponMetadataCache metadataCache,
+                              HashedTimerWheel reservationExpiryWheel,
+                              RedemptionGate redemptionGate,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${coupon.reservation.ttl:5m}") Duration ttl,
+                              @Value("${coupon.reservation.expiry-threads:2}") int expiryThreads) {
+        this.couponRepository = couponRepository;
+        this.usageStore = usageStore;
+        this.reservationRepository = reservationRepository;
+        this.geoLocationService = geoLocationService;
+        this.usageRollupService = usageRollupService;
+        this.metadataCache = metadataCache;
+        this.expiryWheel = reservationExpiryWheel;
+        // Expiring a hold locks the coupon row, which must not hold up the wheel's ticker thread
+        AtomicInteger workers = new AtomicInteger();
+        this.expiryExecutor = Executors.newFixedThreadPool(expiryThreads, r -> {
+            Thread thread = new Thread(r, "reservation-expiry-worker-" + workers.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.redemptionGate = redemptionGate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttl = ttl;
+    }
+
+    @Transactional
+    public CouponReservation reserve(String code, String userId, String ipAddress, String country) {
+        redemptionGate.admit();
+        LocalDateTime now = LocalDateTime.now();
+        String userCountry = geoLocationService.resolveCountry(country, ipAddress);
+        metadataCache.get(code).ifPresent(metadata -> metadata.check(now, userCountry));
+
+        Coupon coupon = couponRepository.findByCodeIgnoreCase(code)
+                .orElseThrow(() -> new IllegalArgumentException("Coupon not found"));
+        metadataCache.put(coupon);
+
+        coupon.checkValidAt(now);
+
+        if (!coupon.isValidForCountry(userCountry)) {
+            throw new IllegalArgumentException("Coupon is not valid for your country");
+        }
+
+        if (!coupon.isAvailable()) {
+            throw new IllegalStateException("Coupon has reached maximum uses");
+        }
+
+        if (usageStore.hasUsed(coupon.getId(), userId)) {
+            throw new IllegalStateException("User has already used this coupon");
+        }
+
+        if (reservationRepository.findByCouponIdAndUserId(coupon.getId(), userId).isPresent()) {
+            throw new IllegalStateException("User already holds a reservation for this coupon");
+        }
+
+        coupon.reserve();
+        couponRepository.save(coupon);
+        // Kept for attribution only; anything but a two-letter code is stored as unknown, as in the rollups
+        String reservedCountry = userCountry != null && userCountry.length() == 2 ? userCountry.toUpperCase() : null;
+        CouponReservation reservation = reservationRepository.save(
+            new CouponReservation(coupon.getId(), userId, Instant.now().plus(ttl), reservedCountry));
+
+        // Only arm the timer once the hold is visible to the expiry transaction
+        Long reservationId = reservation.getId();
+        Instant expiresAt = reservation.getExpiresAt();
+        afterCommit(() -> scheduleExpiry(reservationId, expiresAt));
+        return reservation;
+    }
+
+    // Not @Transactional: the user is prepared for the usage store before the coupon row is locked, and
+    // a hold given back because the user already redeemed the coupon must commit before the conflict
+    // is reported
+    public void confirm(String code, Long reservationId) {
+        reservationRepository.findById(reservationId)
+                .ifPresent(reservation -> usageStore.prepareUser(reservation.getUserId()));
+        Boolean confirmed = transactionTemplate.execute(status -> confirmOrRelease(code, reservationId));
+        if (!Boolean.TRUE.equals(confirmed)) {
+            throw new IllegalStateException("User has already used this coupon");
+        }
+    }
+
+    @Transactional
+    public void release(String code, Long reservationId) {
+        Coupon coupon = couponRepository.findByCodeIgnoreCase(code)
+                .orElseThrow(() -> new IllegalArgumentException("Coupon not found"));
+        CouponReservation reservation = findReservation(coupon, reservationId);
+
+        reservationRepository.delete(reservation);
+        coupon.releaseReservation();
+        couponRepository.save(coupon);
+        afterCommit(() -> cancelExpiry(reservationId));
+    }
+
+    private boolean confirmOrRelease(String code, Long reservationId) {
+        redemptionGate.admit();
+        Coupon coupon = couponRepository.findByCodeIgnoreCase(code)
+                .orElseThrow(() -> new IllegalArgumentException("Coupon not found"));
+        CouponReservation reservation = findReservation(coupon, reservationId);
+
+        // A hold taken while the coupon was valid is honoured even if the window closed since
+        if (reservation.isExpiredAt(Instant.now())) {
+            throw new IllegalStateException("Reservation has expired");
+        }
+
+        reservationRepository.delete(reservation);
+        afterCommit(() -> cancelExpiry(reservationId));
+        // The user may have redeemed the coupon directly while holding the reservation
+        if (usageStore.hasUsed(coupon.getId(), reservation.getUserId())) {
+            coupon.releaseReservation();
+            couponRepository.save(coupon);
+            return false;
+        }
+        coupon.confirmReservation();
+        couponRepository.save(coupon);
+        usageStore.record(coupon, reservation.getUserId());
+        usageRollupService.record(coupon.getId(), reservation.getCountry());
+        return true;
+    }
+
+    // Invoked from the expiry executor; returns the held slot if the reservation is still outstanding
+    public boolean expire(Long reservationId) {
+        expiryTimeouts.remove(reservationId);
+        Boolean released = transactionTemplate.execute(status -> {
+            CouponReservation reservation = reservationRepository.findById(reservationId).orElse(null);
+            if (reservation == null) {
+                return false;
+            }
+            if (!reservation.isExpiredAt(Instant.now())) {
+                afterCommit(() -> scheduleExpiry(reservationId, reservation.getExpiresAt()));
+                return false;
+            }
+            couponRepository.findByIdForUpdate(reservation.getCouponId())
+                    .ifPresent(coupon -> {
+                        coupon.releaseReservation();
+                        couponRepository.save(coupon);
+                    });
+            reservationRepository.delete(reservation);
+            return true;
+        });
+        return Boolean.TRUE.equals(released);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void scheduleOutstandingReservations() {
+        var deadlines = reservationRepository.findAllDeadlines();
+        deadlines.forEach(deadline -> scheduleExpiry(deadline.id(), Instant.ofEpochMilli(deadline.expiresAt())));
+        if (!deadlines.isEmpty()) {
+            log.info("Re-armed expiry for {} outstanding reservations", deadlines.size());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        expiryExecutor.shutdown();
+    }
+
+    private CouponReservation findReservation(Coupon coupon, Long reservationId) {
+        return reservationRepository.findById(reservationId)
+                .filter(reservation -> reservation.getCouponId().equals(coupon.getId()))
+                .orElseThrow(() -> new IllegalArgumentException("Reservation not found"));
+    }
+
+    private void scheduleExpiry(Long reservationId, Instant expiresAt) {
+        // The wheel only hands the expiry over; the transaction runs on the expiry executor
+        HashedTimerWheel.Timeout timeout = expiryWheel.scheduleAt(() -> {
+            try {
+                expiryExecutor.execute(() -> runExpiry(reservationId));
+            } catch (RejectedExecutionException e) {
+                // Shutting down; outstanding reservations are re-armed on the next start
+            }
+        }, expiresAt);
+        HashedTimerWheel.Timeout previous = expiryTimeouts.put(reservationId, timeout);
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    private void runExpiry(Long reservationId) {
+        try {
+            expire(reservationId);
+        } catch (RuntimeException e) {
+            log.warn("Failed to expire reservation {}, retrying", reservationId, e);
+            scheduleExpiry(reservationId, Instant.now().plus(EXPIRY_RETRY_DELAY));
+        }
+    }
+
+    private void cancelExpiry(Long reservationId) {
+        HashedTimerWheel.Timeout timeout = expiryTimeouts.remove(reservationId);
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,180 @@
+package com.discount.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import static com.discount.service.SnapshotWriter.*;
+
+// Reads a snapshot written by SnapshotWriter. Opening it only walks the block headers; blocks are
+// memory-mapped and verified one at a time, so they can be decoded on several threads.
+public class SnapshotReader implements AutoCloseable {
+    private final FileChannel channel;
+    private final List<Block> blocks = new ArrayList<>();
+    private long coupons = -1;
+    private long usages = -1;
+    private long archivedCoupons;
+    private long archivedUsages;
+
+    private SnapshotReader(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    public static SnapshotReader open(Path file) throws IOException {
+        SnapshotReader reader = new SnapshotReader(FileChannel.open(file, StandardOpenOption.READ));
+        try {
+            reader.readLayout();
+        } catch (IOException | RuntimeException e) {
+            reader.close();
+            throw e;
+        }
+        return reader;
+    }
+
+    public List<Block> getBlocks() {
+        return blocks;
+    }
+
+    public long getCoupons() {
+        return coupons;
+    }
+
+    public long getUsages() {
+        return usages;
+    }
+
+    public long getArchivedCoupons() {
+        return archivedCoupons;
+    }
+
+    public long getArchivedUsages() {
+        return archivedUsages;
+    }
+
+    // Maps the block and returns its payload once the checksum has been verified
+    public ByteBuffer map(Block block) throws IOException {
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, block.offset(), block.length());
+        int end = (int) block.length() - 4;
+        CRC32C crc = new CRC32C();
+        crc.update(mapped.duplicate().position(4).limit(end));
+        if ((int) crc.getValue() != mapped.getInt(end)) {
+            throw new IllegalStateException("Snapshot block at offset " + block.offset() + " is corrupt");
+        }
+        return mapped.position(BLOCK_HEADER_SIZE).limit(end).slice();
+    }
+
+    private void readLayout() throws IOException {
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(header, 0);
+        if (size < HEADER_SIZE || header.getInt(0) != MAGIC) {
+            throw new IllegalStateException("Not a coupon snapshot");
+        }
+        int version = header.getInt(4);
+        if (version < 1 || version > FORMAT_VERSION) {
+            throw new IllegalStateException("Unsupported snapshot version " + version);
+        }
+
+        long position = HEADER_SIZE;
+        ByteBuffer blockHeader = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+        while (position < size) {
+            if (size - position < BLOCK_HEADER_SIZE) {
+                throw new IllegalStateException("Snapshot is truncated");
+            }
+            blockHeader.clear();
+            readFully(blockHeader, position);
+            int payloadLength = blockHeader.getInt(0);
+            byte type = blockHeader.get(4);
+            int records = blockHeader.getInt(5);
+            long length = BLOCK_HEADER_SIZE + (long) payloadLength + 4;
+            if (payloadLength < 0 || position + length > size) {
+                throw new IllegalStateException("Snapshot is truncated");
+            }
+            Block block = new Block(type, records, position, length);
+            if (type == END_BLOCK) {
+                ByteBuffer counts = map(block);
+                coupons = counts.getLong();
+                usages = counts.getLong();
+                // Version 1 snapshots hold no archive blocks
+                if (version >= 2) {
+                    archivedCoupons = counts.getLong();
+                    archivedUsages = counts.getLong();
+                }
+                break;
+            }
+            blocks.add(block);
+            position += length;
+        }
+        if (coupons < 0) {
+            throw new IllegalStateException("Snapshot is truncated");
+        }
+    }
+
+    public static SnapshotWriter.CouponRecord readCoupon(ByteBuffer payload) {
+        return new SnapshotWriter.CouponRecord(payload.getLong(), getString(payload), getTimestamp(payload),
+                payload.getInt(), payload.getInt(), getString(payload), getString(payload), getBytes(payload),
+                getTimestamp(payload), getTimestamp(payload), payload.getLong());
+    }
+
+    public static SnapshotWriter.ArchivedCouponRecord readArchivedCoupon(ByteBuffer payload) {
+        return new SnapshotWriter.ArchivedCouponRecord(readCoupon(payload), getTimestamp(payload));
+    }
+
+    public static UsageStore.UsageRecord readUsage(ByteBuffer payload) {
+        return new UsageStore.UsageRecord(payload.getLong(), getString(payload), getTimestamp(payload));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Timestamps are stored as microseconds, enough for TIMESTAMP(6) columns to round-trip exactly
+    static long toMicros(LocalDateTime value) {
+        return value.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + value.getNano() / 1_000;
+    }
+
+    static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000),
+                Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+    }
+
+    private static String getString(ByteBuffer payload) {
+        byte[] bytes = getBytes(payload);
+        return bytes != null ? new String(bytes, StandardCharsets.UTF_8) : null;
+    }
+
+    private static byte[] getBytes(ByteBuffer payload) {
+        short length = payload.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        payload.get(bytes);
+        return bytes;
+    }
+
+    private static LocalDateTime getTimestamp(ByteBuffer payload) {
+        long micros = payload.getLong();
+        return micros == NULL_TIMESTAMP ? null : fromMicros(micros);
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                break;
+            }
+        }
+    }
+
+    public record Block(byte type, int records, long offset, long length) {}
+}
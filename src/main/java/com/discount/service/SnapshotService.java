@@ -0,0 +1,356 @@
+package com.discount.service;
+
+import com.discount.repository.ArchivedCouponRepository;
+import com.discount.repository.CouponRepository;
+import com.discount.service.SnapshotReader.Block;
+import com.discount.service.SnapshotWriter.ArchivedCouponRecord;
+import com.discount.service.SnapshotWriter.CouponRecord;
+import com.discount.service.UsageStore.UsageRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+// Exports all coupons and usages, live and archived, to a binary snapshot file and restores them
+// into an empty database. Export reads one consistent MVCC view, so it never blocks redemptions;
+// restore loads the file's blocks in parallel, one batch insert per block, and empties the
+// database again if it fails, so that it can simply be retried.
+@Service
+public class SnapshotService {
+    private static final Logger log = LoggerFactory.getLogger(SnapshotService.class);
+    private static final Pattern SNAPSHOT_NAME = Pattern.compile("[A-Za-z0-9][A-Za-z0-9._-]{0,99}");
+    private static final String EXTENSION = ".snap";
+    private static final int EXPORT_FETCH_SIZE = 10_000;
+
+    private static final long RESTORE_STOP_TIMEOUT_SECONDS = 30;
+
+    private final CouponRepository couponRepository;
+    private final ArchivedCouponRepository archivedCouponRepository;
+    private final UsageStore usageStore;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate exportTransaction;
+    private final TransactionTemplate importTransaction;
+    private final Path directory;
+    private final int restoreThreads;
+
+    public SnapshotService(CouponRepository couponRepository,
+                           ArchivedCouponRepository archivedCouponRepository,
+                           UsageStore usageStore,
+                           DataSource dataSource,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${coupon.snapshot.directory:snapshots}") Path directory,
+                           @Value("${coupon.snapshot.restore-threads:4}") int restoreThreads) {
+        this.couponRepository = couponRepository;
+        this.archivedCouponRepository = archivedCouponRepository;
+        this.usageStore = usageStore;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(EXPORT_FETCH_SIZE);
+        this.exportTransaction = new TransactionTemplate(transactionManager);
+        this.exportTransaction.setReadOnly(true);
+        this.exportTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.importTransaction = new TransactionTemplate(transactionManager);
+        this.directory = directory.toAbsolutePath().normalize();
+        this.restoreThreads = restoreThreads;
+    }
+
+    public SnapshotInfo export(String name) {
+        Path file = resolve(name);
+        if (Files.exists(file)) {
+            throw new IllegalStateException("Snapshot already exists");
+        }
+        long start = System.nanoTime();
+        Path partial = file.resolveSibling(file.getFileName() + ".partial");
+        try {
+            Files.createDirectories(directory);
+            Files.deleteIfExists(partial);
+            long coupons;
+            long usages;
+            long archivedCoupons;
+            long archivedUsages;
+            try (SnapshotWriter writer = new SnapshotWriter(partial)) {
+                exportTransaction.executeWithoutResult(status -> {
+                    writeCoupons(writer);
+                    writeArchivedCoupons(writer);
+                    usageStore.exportUsages(usage -> write(() -> writer.writeUsage(usage)));
+                    usageStore.exportArchivedUsages(usage -> write(() -> writer.writeArchivedUsage(usage)));
+                });
+                writer.finish();
+                coupons = writer.getCoupons();
+                usages = writer.getUsages();
+                archivedCoupons = writer.getArchivedCoupons();
+                archivedUsages = writer.getArchivedUsages();
+            }
+            // Only complete snapshots ever appear under their final name
+            Files.move(partial, file, StandardCopyOption.ATOMIC_MOVE);
+            SnapshotInfo info = new SnapshotInfo(name, coupons, usages, archivedCoupons, archivedUsages,
+                    Files.size(file), elapsedMillis(start));
+            log.info("Exported snapshot {}: {} coupons, {} usages, {} archived coupons, {} archived usages, {} bytes in {} ms",
+                    name, coupons, usages, archivedCoupons, archivedUsages, info.bytes(), info.durationMillis());
+            return info;
+        } catch (IOException | UncheckedIOException e) {
+            deleteQuietly(partial);
+            throw new IllegalStateException("Could not write snapshot: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            deleteQuietly(partial);
+            throw e;
+        }
+    }
+
+    public SnapshotInfo restore(String name) {
+        Path file = resolve(name);
+        if (!Files.exists(file)) {
+            throw new IllegalArgumentException("Snapshot not found");
+        }
+        if (couponRepository.count() > 0 || archivedCouponRepository.count() > 0
+                || usageStore.countUsages() > 0 || usageStore.countArchivedUsages() > 0) {
+            throw new IllegalStateException("Snapshots can only be restored into an empty database");
+        }
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(restoreThreads);
+        try (SnapshotReader reader = SnapshotReader.open(file)) {
+            // Usages reference coupons, so every coupon block is loaded first
+            long coupons = load(reader, SnapshotWriter.COUPON_BLOCK, executor, this::insertCoupons);
+            long archivedCoupons = load(reader, SnapshotWriter.ARCHIVED_COUPON_BLOCK, executor, this::insertArchivedCoupons);
+            restartCouponIds();
+            // Archived usages are numbered first and live ones after them, so archiving them later cannot collide
+            long archivedUsages = load(reader, SnapshotWriter.ARCHIVED_USAGE_BLOCK, executor, this::insertArchivedUsages);
+            usageStore.restartUsageIds(archivedUsages + 1);
+            long usages = load(reader, SnapshotWriter.USAGE_BLOCK, executor, this::insertUsages);
+            if (coupons != reader.getCoupons() || usages != reader.getUsages()
+                    || archivedCoupons != reader.getArchivedCoupons() || archivedUsages != reader.getArchivedUsages()) {
+                throw new IllegalStateException("Snapshot record counts do not match its trailer");
+            }
+            SnapshotInfo info = new SnapshotInfo(name, coupons, usages, archivedCoupons, archivedUsages,
+                    Files.size(file), elapsedMillis(start));
+            log.info("Restored snapshot {}: {} coupons, {} usages, {} archived coupons, {} archived usages in {} ms",
+                    name, coupons, usages, archivedCoupons, archivedUsages, info.durationMillis());
+            return info;
+        } catch (IOException e) {
+            undoRestore(executor);
+            throw new IllegalStateException("Could not read snapshot: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            undoRestore(executor);
+            throw e;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void writeCoupons(SnapshotWriter writer) {
+        // Reservations and leases are not part of a snapshot, so the uses they hold are given back
+        jdbcTemplate.query("SELECT c.id, c.code, c.created_at, c.max_uses, c.current_uses, c.country, " +
+                           "c.country_mode, c.countries, c.valid_from, c.valid_until, c.version, " +
+                           "COALESCE((SELECT SUM(l.granted - l.consumed) FROM coupon_lease l WHERE l.coupon_id = c.id), 0) " +
+                           "FROM coupon c", (RowCallbackHandler) row -> {
+            CouponRecord coupon = new CouponRecord(row.getLong(1), row.getString(2),
+                    row.getObject(3, LocalDateTime.class), row.getInt(4), row.getInt(5) - row.getInt(12),
+                    row.getString(6), row.getString(7), row.getBytes(8),
+                    row.getObject(9, LocalDateTime.class), row.getObject(10, LocalDateTime.class), row.getLong(11));
+            write(() -> writer.writeCoupon(coupon));
+        });
+    }
+
+    private void writeArchivedCoupons(SnapshotWriter writer) {
+        jdbcTemplate.query("SELECT id, code, created_at, max_uses, current_uses, country, country_mode, countries, " +
+                           "valid_from, valid_until, version, archived_at FROM coupon_archive", (RowCallbackHandler) row -> {
+            CouponRecord coupon = new CouponRecord(row.getLong(1), row.getString(2),
+                    row.getObject(3, LocalDateTime.class), row.getInt(4), row.getInt(5),
+                    row.getString(6), row.getString(7), row.getBytes(8),
+                    row.getObject(9, LocalDateTime.class), row.getObject(10, LocalDateTime.class), row.getLong(11));
+            ArchivedCouponRecord archived = new ArchivedCouponRecord(coupon, row.getObject(12, LocalDateTime.class));
+            write(() -> writer.writeArchivedCoupon(archived));
+        });
+    }
+
+    private long load(SnapshotReader reader, byte type, ExecutorService executor, BlockLoader loader) throws IOException {
+        List<Future<Integer>> batches = new ArrayList<>();
+        // Records are numbered across all blocks of the type, for loaders that assign ids
+        long firstRecord = 0;
+        for (Block block : reader.getBlocks()) {
+            if (block.type() == type) {
+                long blockFirstRecord = firstRecord;
+                batches.add(executor.submit(() -> loader.load(reader.map(block), block.records(), blockFirstRecord)));
+                firstRecord += block.records();
+            }
+        }
+        long loaded = 0;
+        try {
+            for (Future<Integer> batch : batches) {
+                loaded += batch.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Snapshot restore was interrupted");
+        } catch (ExecutionException e) {
+            batches.forEach(batch -> batch.cancel(true));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Snapshot restore failed: " + e.getCause().getMessage(), e.getCause());
+        }
+        return loaded;
+    }
+
+    private int insertCoupons(ByteBuffer payload, int records, long firstRecord) {
+        List<CouponRecord> coupons = new ArrayList<>(records);
+        for (int i = 0; i < records; i++) {
+            coupons.add(SnapshotReader.readCoupon(payload));
+        }
+        importTransaction.executeWithoutResult(status -> jdbcTemplate.batchUpdate(
+            "INSERT INTO coupon (id, code, created_at, max_uses, current_uses, reserved_uses, country, " +
+            "country_mode, countries, valid_from, valid_until, version) VALUES (?, ?, ?, ?, ?, 0, ?, ?, ?, ?, ?, ?)",
+            coupons, coupons.size(), (statement, coupon) -> {
+                statement.setLong(1, coupon.id());
+                statement.setString(2, coupon.code());
+                statement.setObject(3, coupon.createdAt());
+                statement.setInt(4, coupon.maxUses());
+                statement.setInt(5, coupon.currentUses());
+                statement.setString(6, coupon.country());
+                statement.setString(7, coupon.countryMode());
+                statement.setBytes(8, coupon.countries());
+                statement.setObject(9, coupon.validFrom());
+                statement.setObject(10, coupon.validUntil());
+                statement.setLong(11, coupon.version());
+            }));
+        return coupons.size();
+    }
+
+    private int insertArchivedCoupons(ByteBuffer payload, int records, long firstRecord) {
+        List<ArchivedCouponRecord> archived = new ArrayList<>(records);
+        for (int i = 0; i < records; i++) {
+            archived.add(SnapshotReader.readArchivedCoupon(payload));
+        }
+        importTransaction.executeWithoutResult(status -> jdbcTemplate.batchUpdate(
+            "INSERT INTO coupon_archive (id, code, created_at, max_uses, current_uses, country, country_mode, " +
+            "countries, valid_from, valid_until, version, archived_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+            archived, archived.size(), (statement, record) -> {
+                CouponRecord coupon = record.coupon();
+                statement.setLong(1, coupon.id());
+                statement.setString(2, coupon.code());
+                statement.setObject(3, coupon.createdAt());
+                statement.setInt(4, coupon.maxUses());
+                statement.setInt(5, coupon.currentUses());
+                statement.setString(6, coupon.country());
+                statement.setString(7, coupon.countryMode());
+                statement.setBytes(8, coupon.countries());
+                statement.setObject(9, coupon.validFrom());
+                statement.setObject(10, coupon.validUntil());
+                statement.setLong(11, coupon.version());
+                statement.setObject(12, record.archivedAt());
+            }));
+        return archived.size();
+    }
+
+    private int insertUsages(ByteBuffer payload, int records, long firstRecord) {
+        List<UsageRecord> usages = readUsages(payload, records);
+        importTransaction.executeWithoutResult(status -> usageStore.importUsages(usages));
+        return usages.size();
+    }
+
+    private int insertArchivedUsages(ByteBuffer payload, int records, long firstRecord) {
+        List<UsageRecord> usages = readUsages(payload, records);
+        importTransaction.executeWithoutResult(status -> usageStore.importArchivedUsages(usages, firstRecord + 1));
+        return usages.size();
+    }
+
+    private static List<UsageRecord> readUsages(ByteBuffer payload, int records) {
+        List<UsageRecord> usages = new ArrayList<>(records);
+        for (int i = 0; i < records; i++) {
+            usages.add(SnapshotReader.readUsage(payload));
+        }
+        return usages;
+    }
+
+    // Coupons keep their ids, archived ones too, so new ones must be numbered after the highest restored id
+    private void restartCouponIds() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT GREATEST(COALESCE((SELECT MAX(id) FROM coupon), 0), " +
+                                                 "COALESCE((SELECT MAX(id) FROM coupon_archive), 0))", Long.class);
+        jdbcTemplate.execute("ALTER TABLE coupon ALTER COLUMN id RESTART WITH " + (maxId + 1));
+    }
+
+    // Restore only starts on an empty database, so a failed one is undone by emptying it again. The
+    // loaders are stopped first so that no block commits after the wipe.
+    private void undoRestore(ExecutorService executor) {
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(RESTORE_STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.error("Snapshot loaders did not stop; empty the database before restoring again");
+                return;
+            }
+            importTransaction.executeWithoutResult(status -> {
+                usageStore.deleteAllUsages();
+                jdbcTemplate.update("DELETE FROM coupon_archive");
+                jdbcTemplate.update("DELETE FROM coupon");
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted while undoing a failed restore; empty the database before restoring again");
+        } catch (RuntimeException e) {
+            log.error("Could not undo a failed restore; empty the database before restoring again", e);
+        }
+    }
+
+    private Path resolve(String name) {
+        if (name == null || !SNAPSHOT_NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid snapshot name");
+        }
+        Path file = directory.resolve(name + EXTENSION).normalize();
+        if (!file.getParent().equals(directory)) {
+            throw new IllegalArgumentException("Invalid snapshot name");
+        }
+        return file;
+    }
+
+    private static void write(IoAction action) {
+        try {
+            action.run();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete {}", file, e);
+        }
+    }
+
+    private static long elapsedMillis(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private interface IoAction {
+        void run() throws IOException;
+    }
+
+    private interface BlockLoader {
+        int load(ByteBuffer payload, int records, long firstRecord);
+    }
+
+    public record SnapshotInfo(String name, long coupons, long usages, long archivedCoupons, long archivedUsages,
+                               long bytes, long durationMillis) {}
+}
@@ -0,0 +1,187 @@
+package com.discount.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.zip.CRC32C;
+
+// Writes a coupon snapshot: a file header followed by blocks of records of one type. Each block is
+// [int payload length][byte type][int record count][payload][int CRC32C of type, count and payload],
+// so a reader can find, verify and decode blocks independently of each other.
+public class SnapshotWriter implements AutoCloseable {
+    static final int MAGIC = 0x43504E53; // "CPNS"
+    // Version 2 added the archive blocks and their counts in the end block
+    static final int FORMAT_VERSION = 2;
+    static final int HEADER_SIZE = 16;
+    static final int BLOCK_HEADER_SIZE = 9;
+    static final int MAX_BLOCK_PAYLOAD = 1 << 20;
+    static final byte END_BLOCK = 0;
+    static final byte COUPON_BLOCK = 1;
+    static final byte USAGE_BLOCK = 2;
+    static final byte ARCHIVED_COUPON_BLOCK = 3;
+    static final byte ARCHIVED_USAGE_BLOCK = 4;
+    static final long NULL_TIMESTAMP = Long.MIN_VALUE;
+
+    // Large enough for any single record
+    private static final int MAX_RECORD_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final ByteBuffer block = ByteBuffer.allocateDirect(BLOCK_HEADER_SIZE + MAX_BLOCK_PAYLOAD + MAX_RECORD_SIZE + 4);
+    private final CRC32C crc = new CRC32C();
+    private byte blockType = END_BLOCK;
+    private int blockRecords;
+    private long coupons;
+    private long usages;
+    private long archivedCoupons;
+    private long archivedUsages;
+
+    public SnapshotWriter(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(System.currentTimeMillis()).flip();
+        writeFully(header);
+        block.position(BLOCK_HEADER_SIZE);
+    }
+
+    public void writeCoupon(CouponRecord coupon) throws IOException {
+        startRecord(COUPON_BLOCK);
+        putCoupon(coupon);
+        endRecord();
+        coupons++;
+    }
+
+    public void writeArchivedCoupon(ArchivedCouponRecord archived) throws IOException {
+        startRecord(ARCHIVED_COUPON_BLOCK);
+        putCoupon(archived.coupon());
+        putTimestamp(archived.archivedAt());
+        endRecord();
+        archivedCoupons++;
+    }
+
+    public void writeUsage(UsageStore.UsageRecord usage) throws IOException {
+        startRecord(USAGE_BLOCK);
+        putUsage(usage);
+        endRecord();
+        usages++;
+    }
+
+    public void writeArchivedUsage(UsageStore.UsageRecord usage) throws IOException {
+        startRecord(ARCHIVED_USAGE_BLOCK);
+        putUsage(usage);
+        endRecord();
+        archivedUsages++;
+    }
+
+    public long getCoupons() {
+        return coupons;
+    }
+
+    public long getUsages() {
+        return usages;
+    }
+
+    public long getArchivedCoupons() {
+        return archivedCoupons;
+    }
+
+    public long getArchivedUsages() {
+        return archivedUsages;
+    }
+
+    // Writes the end block holding the record counts; a snapshot without one is incomplete
+    public void finish() throws IOException {
+        flushBlock();
+        blockType = END_BLOCK;
+        block.putLong(coupons).putLong(usages).putLong(archivedCoupons).putLong(archivedUsages);
+        blockRecords = 0;
+        flushBlock();
+        channel.force(true);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void putCoupon(CouponRecord coupon) {
+        block.putLong(coupon.id());
+        putString(coupon.code());
+        putTimestamp(coupon.createdAt());
+        block.putInt(coupon.maxUses());
+        block.putInt(coupon.currentUses());
+        putString(coupon.country());
+        putString(coupon.countryMode());
+        putBytes(coupon.countries());
+        putTimestamp(coupon.validFrom());
+        putTimestamp(coupon.validUntil());
+        block.putLong(coupon.version());
+    }
+
+    private void putUsage(UsageStore.UsageRecord usage) {
+        block.putLong(usage.couponId());
+        putString(usage.userId());
+        putTimestamp(usage.usedAt());
+    }
+
+    private void startRecord(byte type) throws IOException {
+        if (type != blockType || block.position() - BLOCK_HEADER_SIZE >= MAX_BLOCK_PAYLOAD) {
+            flushBlock();
+            blockType = type;
+        }
+    }
+
+    private void endRecord() {
+        blockRecords++;
+    }
+
+    private void flushBlock() throws IOException {
+        int payloadLength = block.position() - BLOCK_HEADER_SIZE;
+        if (payloadLength == 0) {
+            return;
+        }
+        block.putInt(0, payloadLength).put(4, blockType).putInt(5, blockRecords);
+        ByteBuffer checksummed = block.duplicate().position(4).limit(block.position());
+        crc.reset();
+        crc.update(checksummed);
+        block.putInt((int) crc.getValue());
+        block.flip();
+        writeFully(block);
+        block.clear().position(BLOCK_HEADER_SIZE);
+        blockRecords = 0;
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void putString(String value) {
+        putBytes(value != null ? value.getBytes(StandardCharsets.UTF_8) : null);
+    }
+
+    private void putBytes(byte[] value) {
+        if (value == null) {
+            block.putShort((short) -1);
+            return;
+        }
+        if (value.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Value too long for a snapshot record");
+        }
+        block.putShort((short) value.length).put(value);
+    }
+
+    private void putTimestamp(LocalDateTime value) {
+        block.putLong(value != null ? SnapshotReader.toMicros(value) : NULL_TIMESTAMP);
+    }
+
+    public record CouponRecord(long id, String code, LocalDateTime createdAt, int maxUses, int currentUses,
+                               String country, String countryMode, byte[] countries,
+                               LocalDateTime validFrom, LocalDateTime validUntil, long version) {}
+
+    public record ArchivedCouponRecord(CouponRecord coupon, LocalDateTime archivedAt) {}
+}
@@ -0,0 +1,128 @@
+package com.discount.service;
+
+import com.discount.dto.CouponView;
+import com.discount.model.CountryMode;
+import com.discount.repository.CouponRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+// Warms caches, Hibernate and the JIT before the instance reports itself ready. Runners complete
+// before readiness switches to ACCEPTING_TRAFFIC, so a rolling deploy only sends traffic once
+// this is done.
+@Component
+public class StartupWarmup implements ApplicationRunner {
+    private static final Logger log = LoggerFactory.getLogger(StartupWarmup.class);
+
+    private final CouponService couponService;
+    private final CouponRepository couponRepository;
+    private final CouponMetadataCache metadataCache;
+    private final GeoLocationService geoLocationService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate dryRunTransaction;
+    private final boolean enabled;
+    private final int preloadLimit;
+    private final int iterations;
+    private long warmupMillis;
+
+    public StartupWarmup(CouponService couponService,
+                         CouponRepository couponRepository,
+                         CouponMetadataCache metadataCache,
+                         GeoLocationService geoLocationService,
+                         ObjectMapper objectMapper,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${coupon.warmup.enabled:true}") boolean enabled,
+                         @Value("${coupon.warmup.preload-limit:10000}") int preloadLimit,
+                         @Value("${coupon.warmup.iterations:200}") int iterations) {
+        this.couponService = couponService;
+        this.couponRepository = couponRepository;
+        this.metadataCache = metadataCache;
+        this.geoLocationService = geoLocationService;
+        this.objectMapper = objectMapper;
+        this.dryRunTransaction = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.preloadLimit = preloadLimit;
+        this.iterations = iterations;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        List<CouponView> coupons = preloadActiveCoupons();
+        geoLocationService.getCountryFromIp("8.8.8.8");
+        int redeemed = 0;
+        for (int i = 0; i < iterations; i++) {
+            if (dryRun()) {
+                redeemed++;
+            }
+        }
+        warmupMillis = (System.nanoTime() - start) / 1_000_000;
+        log.info("Warm-up preloaded {} active coupons and ran {} of {} dry-run redemptions in {} ms",
+                coupons.size(), redeemed, iterations, warmupMillis);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reportReady() {
+        long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+        if (enabled) {
+            log.info("Ready for traffic {} ms after JVM start, including {} ms of warm-up", uptime, warmupMillis);
+        } else {
+            log.info("Ready for traffic {} ms after JVM start", uptime);
+        }
+    }
+
+    private List<CouponView> preloadActiveCoupons() {
+        List<CouponView> coupons = dryRunTransaction.execute(status ->
+                couponRepository.findActiveViews(LocalDateTime.now(), PageRequest.ofSize(preloadLimit)));
+        coupons.forEach(metadataCache::put);
+        return coupons;
+    }
+
+    // Creates a throwaway coupon, redeems it and reads it back the way polling clients do, in one
+    // transaction that is always rolled back. The coupon is uncommitted and unique to this run, so
+    // no live coupon row is ever locked.
+    private boolean dryRun() {
+        String code = "WARMUP-" + UUID.randomUUID();
+        try {
+            return Boolean.TRUE.equals(dryRunTransaction.execute(status -> {
+                status.setRollbackOnly();
+                couponService.createCoupon(code, 1, CountryMode.ALLOW, List.of("US"), null, null);
+                couponService.useCoupon(code, "warmup", "127.0.0.1", "US");
+                serialize(couponService.getCouponByCode(code));
+                couponService.getCouponsETag();
+                return true;
+            }));
+        } catch (RuntimeException e) {
+            log.debug("Dry-run redemption failed", e);
+            return false;
+        } finally {
+            metadataCache.evict(code);
+        }
+    }
+
+    private void serialize(Object value) {
+        try {
+            objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize " + value, e);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.discount.service;
+
+import com.discount.model.Coupon;
+import com.discount.model.CouponUsageRollup;
+import com.discount.model.CouponUsageRollup.Granularity;
+import com.discount.repository.CouponRepository;
+import com.discount.repository.CouponUsageRollupRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Maintains per-coupon redemption counters by minute and hour. Successful redemptions are counted
+// in memory and merged into coupon_usage_rollup periodically, so the hot path adds no writes.
+@Service
+public class UsageRollupService implements FlushableBuffer {
+    private static final Logger log = LoggerFactory.getLogger(UsageRollupService.class);
+    private static final String UNKNOWN_COUNTRY = "ZZ";
+
+    private final CouponRepository couponRepository;
+    private final CouponUsageRollupRepository rollupRepository;
+    private final TransactionTemplate flushTransaction;
+    private final Duration minuteRetention;
+    private final Duration maxRange;
+    private final Map<RollupKey, Long> pending = new ConcurrentHashMap<>();
+    // Held exclusively while a flush moves counters from pending into the table, so analytics
+    // never see them in neither place or in both
+    private final ReadWriteLock flushLock = new ReentrantReadWriteLock();
+
+    public UsageRollupService(CouponRepository couponRepository,
+                              CouponUsageRollupRepository rollupRepository,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${coupon.rollup.minute-retention:2d}") Duration minuteRetention,
+                              @Value("${coupon.rollup.max-range:31d}") Duration maxRange) {
+        this.couponRepository = couponRepository;
+        this.rollupRepository = rollupRepository;
+        this.flushTransaction = new TransactionTemplate(transactionManager);
+        this.flushTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.minuteRetention = minuteRetention;
+        this.maxRange = maxRange;
+    }
+
+    // Counts a redemption once the surrounding transaction has committed
+    public void record(Long couponId, String country) {
+        String bucketCountry = country != null && country.length() == 2 ? country.toUpperCase() : UNKNOWN_COUNTRY;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            increment(couponId, bucketCountry, Instant.now());
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                increment(couponId, bucketCountry, Instant.now());
+            }
+        });
+    }
+
+    @Override
+    public String bufferName() {
+        return "usage rollups";
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${coupon.rollup.flush-interval-ms:1000}")
+    public int flush() {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        flushLock.writeLock().lock();
+        try {
+            return flushPending();
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+    }
+
+    private int flushPending() {
+        // remove() hands over each counter atomically, so concurrent increments start a new one
+        Map<RollupKey, Long> batch = new TreeMap<>();
+        for (RollupKey key : pending.keySet()) {
+            Long delta = pending.remove(key);
+            if (delta != null) {
+                batch.merge(key, delta, Long::sum);
+            }
+        }
+        try {
+            flushTransaction.executeWithoutResult(status -> batch.forEach((key, delta) -> {
+                if (rollupRepository.increment(key.couponId(), key.granularity(), key.bucketStart(), key.country(), delta) == 0) {
+                    rollupRepository.save(new CouponUsageRollup(
+                        key.couponId(), key.granularity(), key.bucketStart(), key.country(), delta));
+                }
+            }));
+        } catch (RuntimeException e) {
+            // Keep the counts for the next flush rather than losing them
+            batch.forEach((key, delta) -> pending.merge(key, delta, Long::sum));
+            log.warn("Failed to flush {} usage rollups, will retry", batch.size(), e);
+            return 0;
+        }
+        return batch.size();
+    }
+
+    @Scheduled(fixedDelayString = "${coupon.rollup.purge-interval-ms:3600000}")
+    public void purgeExpiredMinuteBuckets() {
+        long before = Instant.now().minus(minuteRetention).getEpochSecond();
+        Integer purged = flushTransaction.execute(status -> rollupRepository.deleteOlderThan(Granularity.MINUTE, before));
+        if (purged != null && purged > 0) {
+            log.debug("Purged {} minute rollups older than {}", purged, minuteRetention);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    // Cost depends on the number of buckets in the range, not on how many usages were recorded. Not
+    // @Transactional: a flush holds the write lock while it waits for a connection, so the read lock
+    // is taken before this thread checks one out, and each query runs in its own repository call
+    public UsageAnalytics getUsageAnalytics(String code, Granularity granularity, Instant from, Instant to) {
+        Coupon coupon = couponRepository.findByCodeIgnoreCaseWithoutLock(code)
+                .orElseThrow(() -> new IllegalArgumentException("Coupon not found"));
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(granularity == Granularity.MINUTE ? Duration.ofHours(1) : Duration.ofDays(1));
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("Analytics range start must be before its end");
+        }
+        if (Duration.between(start, end).compareTo(maxRange) > 0) {
+            throw new IllegalArgumentException("Analytics range must not exceed " + maxRange.toDays() + " days");
+        }
+        long fromBucket = granularity.bucketStart(start.getEpochSecond());
+        long toBucket = end.getEpochSecond();
+
+        Map<Long, Map<String, Long>> buckets = new TreeMap<>();
+        flushLock.readLock().lock();
+        try {
+            for (CouponUsageRollup rollup : rollupRepository.findBuckets(coupon.getId(), granularity, fromBucket, toBucket)) {
+                buckets.computeIfAbsent(rollup.getBucketStart(), bucket -> new TreeMap<>())
+                        .merge(rollup.getCountry(), rollup.getRedemptions(), Long::sum);
+            }
+            // Include counts that have not been flushed yet
+            pending.forEach((key, delta) -> {
+                if (key.couponId().equals(coupon.getId()) && key.granularity() == granularity
+                        && key.bucketStart() >= fromBucket && key.bucketStart() < toBucket) {
+                    buckets.computeIfAbsent(key.bucketStart(), bucket -> new TreeMap<>())
+                            .merge(key.country(), delta, Long::sum);
+                }
+            });
+        } finally {
+            flushLock.readLock().unlock();
+        }
+
+        Map<String, Long> byCountry = new TreeMap<>();
+        List<Bucket> series = new ArrayList<>();
+        long total = 0;
+        for (Map.Entry<Long, Map<String, Long>> bucket : buckets.entrySet()) {
+            long redemptions = 0;
+            for (Map.Entry<String, Long> country : bucket.getValue().entrySet()) {
+                redemptions += country.getValue();
+                byCountry.merge(country.getKey(), country.getValue(), Long::sum);
+            }
+            total += redemptions;
+            series.add(new Bucket(Instant.ofEpochSecond(bucket.getKey()), redemptions, bucket.getValue()));
+        }
+        return new UsageAnalytics(coupon.getCode(), granularity, Instant.ofEpochSecond(fromBucket), end,
+                total, byCountry, series);
+    }
+
+    private void increment(Long couponId, String country, Instant usedAt) {
+        long epochSecond = usedAt.getEpochSecond();
+        for (Granularity granularity : Granularity.values()) {
+            pending.merge(new RollupKey(couponId, granularity, granularity.bucketStart(epochSecond), country), 1L, Long::sum);
+        }
+    }
+
+    private record RollupKey(Long couponId, Granularity granularity, long bucketStart, String country)
+            implements Comparable<RollupKey> {
+        // Flushing in a stable order keeps concurrent flushes from different nodes from deadlocking
+        @Override
+        public int compareTo(RollupKey other) {
+            int result = couponId.compareTo(other.couponId);
+            if (result == 0) result = granularity.compareTo(other.granularity);
+            if (result == 0) result = Long.compare(bucketStart, other.bucketStart);
+            if (result == 0) result = country.compareTo(other.country);
+            return result;
+        }
+    }
+
+    public record UsageAnalytics(String code, Granularity granularity, Instant from, Instant to,
+                                 long totalRedemptions, Map<String, Long> redemptionsByCountry,
+                                 List<Bucket> buckets) {}
+
+    public record Bucket(Instant start, long redemptions, Map<String, Long> redemptionsByCountry) {}
+}
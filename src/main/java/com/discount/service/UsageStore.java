@@ -0,0 +1,69 @@
+package com.discount.service;
+
+import com.discount.dto.UserCouponUsage;
+import com.discount.model.Coupon;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Where redemptions are recorded; coupon.usage.storage selects the standard or the compact layout
+public interface UsageStore {
+
+    boolean hasUsed(Long couponId, String userId);
+
+    // Called before the redemption transaction starts, so a layout that has to write something in a
+    // transaction of its own does not hold a second pooled connection while the coupon row is locked
+    default void prepareUser(String userId) {
+    }
+
+    // Fails with a DataIntegrityViolationException if the user has already used the coupon
+    void record(Coupon coupon, String userId);
+
+    // Keyset order of the history: newest first, ties broken by coupon id
+    Comparator<UserCouponUsage> HISTORY_ORDER = Comparator.comparing(UserCouponUsage::usedAt)
+            .thenComparing(UserCouponUsage::couponId)
+            .reversed();
+
+    // Newest first, live and archived usages alike; usedAt and couponId, when given, are the position
+    // of the last row already returned
+    List<UserCouponUsage> findHistory(String userId, LocalDateTime usedAt, Long couponId, int limit);
+
+    boolean hasUsages(Long couponId);
+
+    // Moves up to limit usages of the coupon to the archive and returns how many were moved
+    int archiveUsages(Long couponId, int limit);
+
+    long countUsages();
+
+    long countArchivedUsages();
+
+    // Streams every live usage, for snapshots; must run inside a transaction
+    void exportUsages(Consumer<UsageRecord> consumer);
+
+    void exportArchivedUsages(Consumer<UsageRecord> consumer);
+
+    // Bulk-inserts usages restored from a snapshot
+    void importUsages(List<UsageRecord> usages);
+
+    // Layouts that key archived usages by the live usage id number them from firstId
+    void importArchivedUsages(List<UsageRecord> usages, long firstId);
+
+    // Live usages inserted after this are numbered from nextId, clear of restored archive ids
+    void restartUsageIds(long nextId);
+
+    // Removes every live and archived usage; only used to undo a failed restore
+    void deleteAllUsages();
+
+    // Both pages are in history order; a usage is either live or archived, never both
+    static List<UserCouponUsage> mergeHistory(List<UserCouponUsage> live, List<UserCouponUsage> archived, int limit) {
+        if (archived.isEmpty()) {
+            return live;
+        }
+        return Stream.concat(live.stream(), archived.stream()).sorted(HISTORY_ORDER).limit(limit).toList();
+    }
+
+    record UsageRecord(long couponId, String userId, LocalDateTime usedAt) {}
+}
@@ -0,0 +1,105 @@
+package com.discount.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Two H2 instances stand in for the primary and its replica; each one knows its own name
+class ReadWriteRoutingDataSourceTest {
+
+    private DataSource primary;
+    private DataSource replica;
+
+    @BeforeEach
+    void setUp() {
+        primary = h2("routing-primary");
+        replica = h2("routing-replica");
+    }
+
+    @Test
+    void readOnlyTransaction_ShouldUseReplica() {
+        // Given
+        JdbcTemplate jdbcTemplate = jdbcTemplate(routing(List.of(replica), null));
+
+        // When & Then
+        assertEquals("routing-replica", inTransaction(jdbcTemplate, true));
+        assertEquals("routing-primary", inTransaction(jdbcTemplate, false));
+    }
+
+    @Test
+    void readOnlyTransaction_ShouldUsePrimary_WhenReplicaTooStale() {
+        // Given
+        ReadWriteRoutingDataSource routing = routing(List.of(replica), "SELECT 10");
+        JdbcTemplate jdbcTemplate = jdbcTemplate(routing);
+
+        // When
+        routing.refreshReplicaState();
+
+        // Then
+        assertFalse(routing.isReplicaUsable(0));
+        assertEquals("routing-primary", inTransaction(jdbcTemplate, true));
+    }
+
+    @Test
+    void readOnlyTransaction_ShouldUseReplica_WhenLagWithinTolerance() {
+        // Given
+        ReadWriteRoutingDataSource routing = routing(List.of(replica), "SELECT 3");
+        JdbcTemplate jdbcTemplate = jdbcTemplate(routing);
+
+        // When
+        routing.refreshReplicaState();
+
+        // Then
+        assertTrue(routing.isReplicaUsable(0));
+        assertEquals("routing-replica", inTransaction(jdbcTemplate, true));
+    }
+
+    @Test
+    void readOnlyTransaction_ShouldFallBackToPrimary_WhenReplicaUnreachable() {
+        // Given
+        DataSource unreachable = new DriverManagerDataSource("jdbc:h2:tcp://localhost:1/mem:nowhere", "sa", "");
+        ReadWriteRoutingDataSource routing = routing(List.of(unreachable), null);
+        JdbcTemplate jdbcTemplate = jdbcTemplate(routing);
+
+        // When & Then
+        assertEquals("routing-primary", inTransaction(jdbcTemplate, true));
+        assertFalse(routing.isReplicaUsable(0));
+    }
+
+    private ReadWriteRoutingDataSource routing(List<DataSource> replicas, String lagQuery) {
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary, replicas, Duration.ofSeconds(5), lagQuery);
+        routing.afterPropertiesSet();
+        return routing;
+    }
+
+    private JdbcTemplate jdbcTemplate(ReadWriteRoutingDataSource routing) {
+        return new JdbcTemplate(new LazyConnectionDataSourceProxy(routing));
+    }
+
+    private String inTransaction(JdbcTemplate jdbcTemplate, boolean readOnly) {
+        TransactionTemplate transactionTemplate =
+            new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+        transactionTemplate.setReadOnly(readOnly);
+        return transactionTemplate.execute(status ->
+            jdbcTemplate.queryForObject("SELECT name FROM node", String.class));
+    }
+
+    private static DataSource h2(String name) {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS node (name VARCHAR(64))");
+        jdbcTemplate.update("DELETE FROM node");
+        jdbcTemplate.update("INSERT INTO node (name) VALUES (?)", name);
+        return dataSource;
+    }
+}
@@ -0,0 +1,87 @@
+package com.discount.config;
+
+import com.discount.dto.CouponView;
+import com.discount.repository.CouponRepository;
+import com.discount.repository.CouponUsageRepository;
+import com.discount.service.CouponService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Goes through the app's JpaTransactionManager and @Transactional(readOnly = true) services. The
+// replica is a second H2 database holding a copy of the primary taken before the test writes.
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:routing-app-primary;DB_CLOSE_DELAY=-1",
+    "coupon.datasource.routing.enabled=true",
+    "coupon.datasource.replicas[0].url=jdbc:h2:mem:routing-app-replica;DB_CLOSE_DELAY=-1",
+    "coupon.datasource.replica-check-interval-ms=3600000"
+})
+@ActiveProfiles("test")
+class RoutingDataSourceConfigTest {
+
+    private static final JdbcTemplate PRIMARY =
+        new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:routing-app-primary;DB_CLOSE_DELAY=-1", "sa", ""));
+    private static final JdbcTemplate REPLICA =
+        new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:routing-app-replica;DB_CLOSE_DELAY=-1", "sa", ""));
+
+    @Autowired
+    private CouponService couponService;
+
+    @Autowired
+    private CouponRepository couponRepository;
+
+    @Autowired
+    private CouponUsageRepository couponUsageRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        couponUsageRepository.deleteAll();
+        couponRepository.deleteAll();
+        couponService.createCoupon("REPLICATED", 5, "US");
+        // Copy the primary, schema and rows, into the replica
+        List<String> script = PRIMARY.queryForList("SCRIPT", String.class);
+        REPLICA.execute("DROP ALL OBJECTS");
+        script.forEach(REPLICA::execute);
+    }
+
+    @Test
+    void readOnlyServiceCalls_ShouldBeServedByReplica() {
+        // Given
+        assertInstanceOf(JpaTransactionManager.class, transactionManager);
+        couponService.createCoupon("PRIMARYONLY", 5, "US");
+
+        // When
+        List<CouponView> coupons = couponService.getAllCoupons();
+
+        // Then
+        assertEquals(List.of("REPLICATED"), coupons.stream().map(CouponView::code).toList());
+        assertEquals(2, PRIMARY.queryForObject("SELECT COUNT(*) FROM coupon", Integer.class));
+    }
+
+    @Test
+    void writes_ShouldGoToPrimary() {
+        // Given
+        couponService.createCoupon("PRIMARYONLY", 5, "US");
+
+        // When
+        couponService.useCoupon("PRIMARYONLY", "user1", "192.168.1.1", "US");
+
+        // Then
+        assertEquals(1, PRIMARY.queryForObject("SELECT COUNT(*) FROM coupon_usage", Integer.class));
+        assertEquals(0, REPLICA.queryForObject("SELECT COUNT(*) FROM coupon_usage", Integer.class));
+        assertEquals(0, REPLICA.queryForObject("SELECT COUNT(*) FROM coupon WHERE code = 'PRIMARYONLY'", Integer.class));
+    }
+}
@@ -0,0 +1,86 @@
+package com.discount.config;
+
+import com.discount.dto.CouponView;
+import com.discount.model.CountryMode;
+import com.discount.model.CountrySet;
+import com.discount.model.Coupon;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+// Bytes on the wire and serialization time of the coupon listing in each supported format,
+// configured the way the application configures them.
+// Run with: mvn test -Dtest=WireFormatBenchmarkTest -Dwire.benchmark=true [-Dwire.benchmark.coupons=100000]
+@EnabledIfSystemProperty(named = "wire.benchmark", matches = "true")
+class WireFormatBenchmarkTest {
+    private static final int WARMUP_ROUNDS = 10;
+    private static final int MEASURED_ROUNDS = 10;
+
+    @Test
+    void compareFormats() throws IOException {
+        List<CouponView> coupons = coupons(Integer.getInteger("wire.benchmark.coupons", 100_000));
+        System.out.printf("%,d coupons%n", coupons.size());
+        System.out.printf("%-16s %12s %12s %12s%n", "format", "bytes", "gzip bytes", "ms");
+        measure("json", Jackson2ObjectMapperBuilder.json().build(), coupons);
+        measure("json+blackbird", Jackson2ObjectMapperBuilder.json().modulesToInstall(new BlackbirdModule()).build(), coupons);
+        measure("cbor+blackbird", Jackson2ObjectMapperBuilder.json().factory(new CBORFactory())
+                .modulesToInstall(new BlackbirdModule()).build(), coupons);
+        measure("smile+blackbird", Jackson2ObjectMapperBuilder.json().factory(new SmileFactory())
+                .modulesToInstall(new BlackbirdModule()).build(), coupons);
+    }
+
+    private static void measure(String format, ObjectMapper mapper, List<CouponView> coupons) throws IOException {
+        byte[] body = mapper.writeValueAsBytes(coupons);
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            mapper.writeValueAsBytes(coupons);
+        }
+        long[] nanos = new long[MEASURED_ROUNDS];
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            mapper.writeValueAsBytes(coupons);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        System.out.printf("%-16s %,12d %,12d %12.1f%n", format, body.length, gzip(body).length,
+                nanos[MEASURED_ROUNDS / 2] / 1e6);
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        return out.toByteArray();
+    }
+
+    private static List<CouponView> coupons(int count) {
+        LocalDateTime now = LocalDateTime.of(2024, 6, 1, 0, 0);
+        List<CouponView> coupons = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Coupon coupon = i % 10 == 0
+                    ? new Coupon("EU" + i, 1000, CountryMode.ALLOW, CountrySet.of("AT", "BE", "DE", "FR", "NL"))
+                    : new Coupon("CODE" + i, 100 + i % 900, "US");
+            coupon.setId((long) i + 1);
+            coupon.setCurrentUses(i % 100);
+            coupon.setVersion((long) i % 100);
+            coupon.setCreatedAt(now.plusSeconds(i));
+            if (i % 2 == 0) {
+                coupon.setValidUntil(now.plusDays(90));
+            }
+            coupons.add(CouponView.of(coupon));
+        }
+        return coupons;
+    }
+}
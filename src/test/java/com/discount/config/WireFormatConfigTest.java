@@ -0,0 +1,73 @@
+package com.discount.config;
+
+import com.discount.model.Coupon;
+import com.discount.repository.CouponRepository;
+import com.discount.repository.CouponUsageRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class WireFormatConfigTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CouponRepository couponRepository;
+
+    @Autowired
+    private CouponUsageRepository couponUsageRepository;
+
+    @BeforeEach
+    void setUp() {
+        couponUsageRepository.deleteAll();
+        couponRepository.deleteAll();
+        Coupon coupon = new Coupon("WIRE", 10, "US");
+        coupon.setValidUntil(LocalDateTime.of(2030, 1, 1, 0, 0));
+        couponRepository.save(coupon);
+    }
+
+    @Test
+    void getAllCoupons_ShouldReturnCbor_WhenAccepted() throws Exception {
+        JsonNode coupons = fetch("application/cbor", new CBORMapper());
+
+        assertEquals("WIRE", coupons.get(0).get("code").asText());
+        assertEquals(10, coupons.get(0).get("maxUses").asInt());
+    }
+
+    @Test
+    void getAllCoupons_ShouldReturnSmile_WhenAccepted() throws Exception {
+        JsonNode coupons = fetch("application/x-jackson-smile", new SmileMapper());
+
+        assertEquals("WIRE", coupons.get(0).get("code").asText());
+        // Same date handling as the JSON representation
+        assertEquals("2030-01-01T00:00:00", coupons.get(0).get("validUntil").asText());
+    }
+
+    private JsonNode fetch(String mediaType, ObjectMapper mapper) throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/coupons").accept(mediaType))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(mediaType))
+                .andReturn();
+        return mapper.readTree(result.getResponse().getContentAsByteArray());
+    }
+}
@@ -1,5 +1,9 @@
 package com.discount.controller;
 
+import com.discount.dto.CouponView;
+import com.discount.exception.ServiceDrainingException;
+import com.discount.model.CountryMode;
+import com.discount.model.CountrySet;
 import com.discount.model.Coupon;
 import com.discount.service.CouponService;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -10,15 +14,20 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.doThrow;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -44,7 +53,10 @@ public class CouponControllerTest {
         when(couponService.createCoupon(
             eq(request.code()),
             eq(request.maxUses()),
-            eq(request.country())
+            eq(CountryMode.ALLOW),
+            eq(List.of(request.country())),
+            isNull(),
+            isNull()
         )).thenReturn(expectedCoupon);
 
         // Act & Assert
@@ -56,7 +68,7 @@ public class CouponControllerTest {
             .andExpect(jsonPath("$.maxUses").value(request.maxUses()))
             .andExpect(jsonPath("$.country").value(request.country()));
 
-        verify(couponService).createCoupon(request.code(), request.maxUses(), request.country());
+        verify(couponService).createCoupon(request.code(), request.maxUses(), CountryMode.ALLOW, List.of(request.country()), null, null);
     }
 
     @Test
@@ -101,9 +113,9 @@ public class CouponControllerTest {
     @Test
     void getAllCoupons_shouldReturnListOfCoupons() throws Exception {
         // Arrange
-        List<Coupon> expectedCoupons = Arrays.asList(
-            new Coupon("CODE1", 10, "US"),
-            new Coupon("CODE2", 5, "UK")
+        List<CouponView> expectedCoupons = Arrays.asList(
+            CouponView.of(new Coupon("CODE1", 10, "US")),
+            CouponView.of(new Coupon("CODE2", 5, "UK"))
         );
         when(couponService.getAllCoupons()).thenReturn(expectedCoupons);
 
@@ -124,7 +136,7 @@ public class CouponControllerTest {
     void getCouponByCode_shouldReturnCoupon() throws Exception {
         // Arrange
         String code = "TEST123";
-        Coupon expectedCoupon = new Coupon(code, 10, "US");
+        CouponView expectedCoupon = CouponView.of(new Coupon(code, 10, "US"));
         when(couponService.getCouponByCode(code)).thenReturn(expectedCoupon);
 
         // Act & Assert
@@ -132,11 +144,78 @@ public class CouponControllerTest {
             .andExpect(status().isOk())
             .andExpect(jsonPath("$.code").value(code))
             .andExpect(jsonPath("$.maxUses").value(10))
-            .andExpect(jsonPath("$.country").value("US"));
+            .andExpect(jsonPath("$.country").value("US"))
+            .andExpect(jsonPath("$.available").value(true))
+            .andExpect(jsonPath("$.version").doesNotExist());
 
         verify(couponService).getCouponByCode(code);
     }
 
+    @Test
+    void getAllCoupons_shouldReturnNotModified_whenWatermarkMatches() throws Exception {
+        // Arrange
+        when(couponService.getCouponsETag()).thenReturn("\"2-5-9\"");
+
+        // Act & Assert
+        mockMvc.perform(get("/api/coupons").header("If-None-Match", "\"2-5-9\""))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string("ETag", "\"2-5-9\""));
+
+        verify(couponService, never()).getAllCoupons();
+    }
+
+    @Test
+    void getCouponByCode_shouldReturnETagFromVersion() throws Exception {
+        // Arrange
+        String code = "TEST123";
+        Coupon coupon = new Coupon(code, 10, "US");
+        coupon.setId(7L);
+        coupon.setVersion(3L);
+        when(couponService.getCouponByCode(code)).thenReturn(CouponView.of(coupon));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/coupons/{code}", code))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", "\"7-3\""));
+
+        mockMvc.perform(get("/api/coupons/{code}", code).header("If-None-Match", "\"7-3\""))
+            .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void getCouponByCode_shouldReturnNotModified_withoutLoading_whenCachedETagMatches() throws Exception {
+        // Arrange
+        String code = "TEST123";
+        when(couponService.findCachedETag(code)).thenReturn(Optional.of("\"7-3\""));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/coupons/{code}", code).header("If-None-Match", "\"7-3\""))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string("ETag", "\"7-3\""));
+
+        verify(couponService, never()).getCouponByCode(code);
+    }
+
+    @Test
+    void getCouponByCode_shouldReturnCurrentETag_whenCachedVersionIsStale() throws Exception {
+        // Arrange
+        String code = "TEST123";
+        Coupon coupon = new Coupon(code, 10, "US");
+        coupon.setId(7L);
+        coupon.setVersion(4L);
+        when(couponService.findCachedETag(code)).thenReturn(Optional.of("\"7-3\""));
+        when(couponService.getCouponByCode(code)).thenReturn(CouponView.of(coupon));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/coupons/{code}", code))
+            .andExpect(status().isOk())
+            .andExpect(header().stringValues("ETag", "\"7-4\""));
+
+        mockMvc.perform(get("/api/coupons/{code}", code).header("If-None-Match", "\"7-4\""))
+            .andExpect(status().isNotModified())
+            .andExpect(header().stringValues("ETag", "\"7-4\""));
+    }
+
     @Test
     void getCouponByCode_shouldReturnNotFound_whenCouponDoesNotExist() throws Exception {
         // Arrange
@@ -254,6 +333,28 @@ public class CouponControllerTest {
         verify(couponService).useCoupon(code, userId, ipAddress, country);
     }
 
+    @Test
+    void useCoupon_shouldReturnServiceUnavailable_whenDraining() throws Exception {
+        // Arrange
+        String code = "TEST123";
+        String userId = "user123";
+        String ipAddress = "192.168.1.1";
+        String country = "US";
+
+        doThrow(new ServiceDrainingException("Service is shutting down, please retry"))
+            .when(couponService).useCoupon(code, userId, ipAddress, country);
+
+        // Act & Assert
+        mockMvc.perform(post("/api/coupons/{code}/use", code)
+                .header("X-User-Id", userId)
+                .header("X-Country", country)
+                .with(request -> {
+                    request.setRemoteAddr(ipAddress);
+                    return request;
+                }))
+            .andExpect(status().isServiceUnavailable());
+    }
+
     @Test
     void useCoupon_shouldReturnConflict_whenUserAlreadyUsedCoupon() throws Exception {
         // Arrange
@@ -277,4 +378,46 @@ public class CouponControllerTest {
 
         verify(couponService).useCoupon(code, userId, ipAddress, country);
     }
-}
\ No newline at end of file
+
+    @Test
+    void createCoupon_shouldPassValidityWindow() throws Exception {
+        // Arrange
+        LocalDateTime validFrom = LocalDateTime.of(2024, 6, 1, 0, 0);
+        LocalDateTime validUntil = LocalDateTime.of(2024, 9, 1, 0, 0);
+        CouponController.CreateCouponRequest request =
+            new CouponController.CreateCouponRequest("SUMMER", 10, "US", validFrom, validUntil);
+        Coupon expectedCoupon = new Coupon(request.code(), request.maxUses(), request.country());
+        expectedCoupon.setValidFrom(validFrom);
+        expectedCoupon.setValidUntil(validUntil);
+
+        when(couponService.createCoupon("SUMMER", 10, CountryMode.ALLOW, List.of("US"), validFrom, validUntil)).thenReturn(expectedCoupon);
+
+        // Act & Assert
+        mockMvc.perform(post("/api/coupons")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.validFrom").value("2024-06-01T00:00:00"))
+            .andExpect(jsonPath("$.validUntil").value("2024-09-01T00:00:00"));
+    }
+
+    @Test
+    void createCoupon_shouldPassCountryList() throws Exception {
+        // Arrange
+        CouponController.CreateCouponRequest request = new CouponController.CreateCouponRequest(
+            "EUROPE", 100, null, List.of("DE", "FR", "IT"), CountryMode.DENY, null, null);
+        Coupon expectedCoupon = new Coupon("EUROPE", 100, CountryMode.DENY, CountrySet.of("DE", "FR", "IT"));
+
+        when(couponService.createCoupon("EUROPE", 100, CountryMode.DENY, List.of("DE", "FR", "IT"), null, null))
+            .thenReturn(expectedCoupon);
+
+        // Act & Assert
+        mockMvc.perform(post("/api/coupons")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.countryMode").value("DENY"))
+            .andExpect(jsonPath("$.countries[0]").value("DE"))
+            .andExpect(jsonPath("$.countries[2]").value("IT"));
+    }
+}
@@ -0,0 +1,72 @@
+package com.discount.loadgen;
+
+import com.discount.repository.CouponRepository;
+import com.discount.repository.CouponUsageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// Drives an embedded instance with each flash-sale scenario and prints throughput and latency
+// percentiles per endpoint; full distributions are written to target/loadgen/*.hgrm.
+// The first scenario of a run hits a cold instance; -Dloadgen.warmup=true runs the startup warm-up first.
+// Run with: mvn test -Dtest=FlashSaleLoadTest -Dloadgen=true
+//           [-Dloadgen.scenario=HOT_CODE] [-Dloadgen.rate=500] [-Dloadgen.duration=20] [-Dloadgen.warmup=true]
+@EnabledIfSystemProperty(named = "loadgen", matches = "true")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"spring.jpa.show-sql=false", "logging.level.org.hibernate.SQL=warn",
+                "coupon.warmup.enabled=${loadgen.warmup:false}"})
+@ActiveProfiles("test")
+class FlashSaleLoadTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private CouponRepository couponRepository;
+
+    @Autowired
+    private CouponUsageRepository couponUsageRepository;
+
+    @BeforeEach
+    void setUp() {
+        couponUsageRepository.deleteAll();
+        couponRepository.deleteAll();
+    }
+
+    @ParameterizedTest
+    @EnumSource(Scenario.class)
+    void run(Scenario scenario) throws IOException, InterruptedException {
+        String selected = System.getProperty("loadgen.scenario", "");
+        assumeTrue(selected.isEmpty() || selected.equalsIgnoreCase(scenario.name()));
+        LoadGenerator generator = new LoadGenerator(URI.create("http://localhost:" + port),
+                Integer.getInteger("loadgen.rate", 500), Duration.ofSeconds(Integer.getInteger("loadgen.duration", 20)));
+        generator.createCoupons(scenario);
+
+        LoadGenerator.Report report = generator.run(scenario, 42);
+
+        report.print(System.out);
+        Path directory = Files.createDirectories(Path.of("target", "loadgen"));
+        for (String endpoint : report.endpoints().keySet()) {
+            String name = scenario.name().toLowerCase() + "-" + endpoint.replaceAll("[^A-Za-z]+", "-") + ".hgrm";
+            try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve(name)))) {
+                report.printDistribution(endpoint, out);
+            }
+        }
+        assertTrue(report.totalRequests() > 0);
+    }
+}
@@ -0,0 +1,152 @@
+package com.discount.loadgen;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Open-model load generator: requests are started at a constant rate on virtual threads, whatever
+// the service's response times. Latency is measured from when a request was due to start, not
+// from when it was sent, so a stalled service or generator shows up in the percentiles instead of
+// silently lowering the request rate (coordinated omission).
+public final class LoadGenerator {
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final URI baseUri;
+    private final int requestsPerSecond;
+    private final Duration duration;
+    private final HttpClient client;
+
+    public LoadGenerator(URI baseUri, int requestsPerSecond, Duration duration) {
+        if (requestsPerSecond < 1) {
+            throw new IllegalArgumentException("Request rate must be at least 1 per second");
+        }
+        this.baseUri = baseUri;
+        this.requestsPerSecond = requestsPerSecond;
+        this.duration = duration;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    public void createCoupons(Scenario scenario) throws IOException, InterruptedException {
+        for (Map.Entry<String, Integer> coupon : scenario.coupons().entrySet()) {
+            String body = "{\"code\":\"" + coupon.getKey() + "\",\"maxUses\":" + coupon.getValue() + ",\"country\":\"US\"}";
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(baseUri.resolve("/api/coupons"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Could not create coupon " + coupon.getKey() + ": " + response.body());
+            }
+        }
+    }
+
+    public Report run(Scenario scenario, long seed) {
+        long total = requestsPerSecond * duration.toSeconds();
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / requestsPerSecond;
+        SplittableRandom random = new SplittableRandom(seed);
+        Map<String, EndpointStats> endpoints = new ConcurrentHashMap<>();
+
+        long start = System.nanoTime();
+        try (ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long sequence = 0; sequence < total; sequence++) {
+                long intendedStart = start + sequence * intervalNanos;
+                sleepUntil(intendedStart);
+                Scenario.Request request = scenario.next(baseUri, sequence, random);
+                EndpointStats stats = endpoints.computeIfAbsent(request.endpoint(), endpoint -> new EndpointStats());
+                requests.execute(() -> send(request, stats, intendedStart));
+            }
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        return new Report(scenario, requestsPerSecond, elapsedNanos, new TreeMap<>(endpoints));
+    }
+
+    private void send(Scenario.Request request, EndpointStats stats, long intendedStart) {
+        try {
+            HttpResponse<Void> response = client.send(request.request(), HttpResponse.BodyHandlers.discarding());
+            stats.record(response.statusCode(), System.nanoTime() - intendedStart);
+        } catch (IOException e) {
+            stats.recordFailure(System.nanoTime() - intendedStart);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleepUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    static final class EndpointStats {
+        private final Histogram latency = new ConcurrentHistogram(HIGHEST_TRACKABLE_NANOS, 3);
+        private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        private final LongAdder failures = new LongAdder();
+
+        void record(int status, long latencyNanos) {
+            statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+            latency.recordValue(Math.min(latencyNanos, HIGHEST_TRACKABLE_NANOS));
+        }
+
+        void recordFailure(long latencyNanos) {
+            failures.increment();
+            latency.recordValue(Math.min(latencyNanos, HIGHEST_TRACKABLE_NANOS));
+        }
+    }
+
+    public record Report(Scenario scenario, int targetRate, long elapsedNanos, Map<String, EndpointStats> endpoints) {
+
+        public long totalRequests() {
+            return endpoints.values().stream().mapToLong(stats -> stats.latency.getTotalCount()).sum();
+        }
+
+        public void print(PrintStream out) {
+            double seconds = elapsedNanos / 1e9;
+            out.printf("%s: target %,d req/s, achieved %,.0f req/s over %.1f s%n",
+                    scenario, targetRate, totalRequests() / seconds, seconds);
+            out.printf("  %-30s %9s %9s %8s %8s %8s %8s %8s  %s%n",
+                    "endpoint", "requests", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "statuses");
+            endpoints.forEach((endpoint, stats) -> {
+                Histogram latency = stats.latency;
+                Map<Object, Long> statuses = new TreeMap<>();
+                stats.statuses.forEach((status, count) -> statuses.put(status, count.sum()));
+                if (stats.failures.sum() > 0) {
+                    statuses.put("io-error", stats.failures.sum());
+                }
+                out.printf("  %-30s %,9d %,9.0f %8.2f %8.2f %8.2f %8.2f %8.2f  %s%n",
+                        endpoint, latency.getTotalCount(), latency.getTotalCount() / seconds,
+                        millis(latency.getValueAtPercentile(50)), millis(latency.getValueAtPercentile(90)),
+                        millis(latency.getValueAtPercentile(99)), millis(latency.getValueAtPercentile(99.9)),
+                        millis(latency.getMaxValue()), statuses);
+            });
+        }
+
+        // Full percentile distribution in HdrHistogram's .hgrm format, in milliseconds
+        public void printDistribution(String endpoint, PrintStream out) {
+            endpoints.get(endpoint).latency.outputPercentileDistribution(out, 1_000_000.0);
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1e6;
+        }
+    }
+}
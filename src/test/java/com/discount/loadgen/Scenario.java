@@ -0,0 +1,105 @@
+package com.discount.loadgen;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+// Traffic shapes seen during flash sales. Each scenario names the coupons it needs and produces
+// the n-th request of a run; requests are labelled with the endpoint they hit for reporting.
+public enum Scenario {
+    // Everyone redeems the same code at once
+    HOT_CODE {
+        @Override
+        Map<String, Integer> coupons() {
+            return Map.of("FLASH", Integer.MAX_VALUE);
+        }
+
+        @Override
+        Request next(URI baseUri, long sequence, SplittableRandom random) {
+            return use(baseUri, "FLASH", "user-" + sequence);
+        }
+    },
+
+    // Redemptions spread over many codes, most of them going to a few popular ones
+    LONG_TAIL {
+        @Override
+        Map<String, Integer> coupons() {
+            return codes("TAIL", TAIL_CODES, Integer.MAX_VALUE);
+        }
+
+        @Override
+        Request next(URI baseUri, long sequence, SplittableRandom random) {
+            return use(baseUri, "TAIL" + skewed(random, TAIL_CODES), "user-" + sequence);
+        }
+    },
+
+    // A small crowd retrying the same redemption; all but the first attempt per user are rejected
+    DUPLICATE_USER_STORM {
+        @Override
+        Map<String, Integer> coupons() {
+            return Map.of("STORM", Integer.MAX_VALUE);
+        }
+
+        @Override
+        Request next(URI baseUri, long sequence, SplittableRandom random) {
+            return use(baseUri, "STORM", "user-" + random.nextInt(STORM_USERS));
+        }
+    },
+
+    // Mostly clients polling coupons, with redemptions and the occasional full listing in between
+    MIXED {
+        @Override
+        Map<String, Integer> coupons() {
+            return codes("MIX", MIXED_CODES, Integer.MAX_VALUE);
+        }
+
+        @Override
+        Request next(URI baseUri, long sequence, SplittableRandom random) {
+            int roll = random.nextInt(100);
+            String code = "MIX" + skewed(random, MIXED_CODES);
+            if (roll < 1) {
+                return new Request("GET /api/coupons",
+                        HttpRequest.newBuilder(baseUri.resolve("/api/coupons")).GET().build());
+            }
+            if (roll < 80) {
+                return new Request("GET /api/coupons/{code}",
+                        HttpRequest.newBuilder(baseUri.resolve("/api/coupons/" + code)).GET().build());
+            }
+            return use(baseUri, code, "user-" + sequence);
+        }
+    };
+
+    private static final int TAIL_CODES = 1000;
+    private static final int MIXED_CODES = 100;
+    private static final int STORM_USERS = 50;
+
+    abstract Map<String, Integer> coupons();
+
+    abstract Request next(URI baseUri, long sequence, SplittableRandom random);
+
+    record Request(String endpoint, HttpRequest request) {}
+
+    private static Request use(URI baseUri, String code, String userId) {
+        return new Request("POST /api/coupons/{code}/use",
+                HttpRequest.newBuilder(baseUri.resolve("/api/coupons/" + code + "/use"))
+                        .header("X-User-Id", userId)
+                        .header("X-Country", "US")
+                        .POST(HttpRequest.BodyPublishers.noBody())
+                        .build());
+    }
+
+    private static Map<String, Integer> codes(String prefix, int count, int maxUses) {
+        Map<String, Integer> codes = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            codes.put(prefix + i, maxUses);
+        }
+        return codes;
+    }
+
+    // Index in [0, count) with a power-law skew towards low indexes
+    private static int skewed(SplittableRandom random, int count) {
+        return (int) (count * Math.pow(random.nextDouble(), 4));
+    }
+}
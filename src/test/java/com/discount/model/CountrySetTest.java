@@ -0,0 +1,61 @@
+package com.discount.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CountrySetTest {
+
+    @Test
+    void contains_ShouldMatchListedCodesCaseInsensitively() {
+        // Given
+        CountrySet countries = CountrySet.of("DE", "fr", "ZZ", "AA");
+
+        // Then
+        assertTrue(countries.contains("de"));
+        assertTrue(countries.contains("FR"));
+        assertTrue(countries.contains("ZZ"));
+        assertTrue(countries.contains("AA"));
+        assertFalse(countries.contains("US"));
+        assertFalse(countries.contains(null));
+        assertFalse(countries.contains("DEU"));
+        assertEquals(4, countries.size());
+    }
+
+    @Test
+    void toBytes_ShouldRoundTrip() {
+        // Given
+        CountrySet countries = CountrySet.of("AT", "BE", "DE", "FR", "IT", "NL");
+
+        // When
+        byte[] bytes = countries.toBytes();
+        CountrySet restored = CountrySet.fromBytes(bytes);
+
+        // Then
+        assertTrue(bytes.length <= 85);
+        assertEquals(countries, restored);
+        assertEquals(List.of("AT", "BE", "DE", "FR", "IT", "NL"), restored.toCodes());
+        assertEquals(0, CountrySet.empty().toBytes().length);
+    }
+
+    @Test
+    void of_ShouldRejectMalformedCodes() {
+        assertThrows(IllegalArgumentException.class, () -> CountrySet.of("D1"));
+        assertThrows(IllegalArgumentException.class, () -> CountrySet.of("EUR"));
+    }
+
+    @Test
+    void admits_ShouldHonourMode() {
+        // Given
+        CountrySet countries = CountrySet.of("DE", "FR");
+
+        // Then
+        assertTrue(CountryMode.ALLOW.admits(countries, "DE"));
+        assertFalse(CountryMode.ALLOW.admits(countries, "US"));
+        assertFalse(CountryMode.DENY.admits(countries, "DE"));
+        assertTrue(CountryMode.DENY.admits(countries, "US"));
+        assertTrue(CountryMode.ALLOW.admits(CountrySet.empty(), "US"));
+    }
+}
@@ -0,0 +1,49 @@
+package com.discount.service;
+
+import com.discount.repository.CompactCouponUsageRepository;
+import com.discount.repository.CouponRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// With a single pooled connection, a redemption that interned the user in a nested transaction
+// would wait for a connection it already holds until the pool timed out
+@SpringBootTest(properties = {
+    "coupon.usage.storage=compact",
+    "spring.datasource.url=jdbc:h2:mem:compact-pool;DB_CLOSE_DELAY=-1",
+    "spring.datasource.hikari.maximum-pool-size=1",
+    "spring.datasource.hikari.connection-timeout=2000"
+})
+@ActiveProfiles("test")
+class CompactUsagePoolTest {
+
+    @Autowired
+    private CouponService couponService;
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private CouponRepository couponRepository;
+
+    @Autowired
+    private CompactCouponUsageRepository compactUsageRepository;
+
+    @Test
+    void firstRedemptionByNewUsers_ShouldNeedOnlyOneConnection() {
+        // Given
+        couponService.createCoupon("FIRSTTIME", 5, "US");
+        Long reservationId = reservationService.reserve("FIRSTTIME", "newcomer2", "192.168.1.1", "US").getId();
+
+        // When
+        couponService.useCoupon("FIRSTTIME", "newcomer1", "192.168.1.1", "US");
+        reservationService.confirm("FIRSTTIME", reservationId);
+
+        // Then
+        Long couponId = couponRepository.findByCodeIgnoreCaseWithoutLock("FIRSTTIME").orElseThrow().getId();
+        assertEquals(2, compactUsageRepository.countByCouponId(couponId));
+    }
+}
@@ -0,0 +1,236 @@
+package com.discount.service;
+
+import com.discount.dto.UserCouponHistory;
+import com.discount.model.Coupon;
+import com.discount.model.CouponUsage;
+import com.discount.repository.ArchivedCompactCouponUsageRepository;
+import com.discount.repository.ArchivedCouponRepository;
+import com.discount.repository.CompactCouponUsageRepository;
+import com.discount.repository.CouponRepository;
+import com.discount.repository.CouponUsageRepository;
+import com.discount.repository.MaintenanceLockRepository;
+import com.discount.repository.UsageUserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Not transactional: user ids are interned in their own transactions
+@SpringBootTest(properties = "coupon.usage.storage=compact")
+@ActiveProfiles("test")
+class CompactUsageStoreTest {
+
+    @Autowired
+    private CouponService couponService;
+
+    @Autowired
+    private CouponArchiver couponArchiver;
+
+    @Autowired
+    private CompactUsageMigration migration;
+
+    @Autowired
+    private CompactUsageStore usageStore;
+
+    @Autowired
+    private CouponRepository couponRepository;
+
+    @Autowired
+    private CouponUsageRepository couponUsageRepository;
+
+    @Autowired
+    private CompactCouponUsageRepository compactUsageRepository;
+
+    @Autowired
+    private ArchivedCompactCouponUsageRepository archivedCompactUsageRepository;
+
+    @Autowired
+    private ArchivedCouponRepository archivedCouponRepository;
+
+    @Autowired
+    private UsageUserRepository usageUserRepository;
+
+    @Autowired
+    private MaintenanceLockRepository lockRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        archivedCompactUsageRepository.deleteAll();
+        archivedCouponRepository.deleteAll();
+        compactUsageRepository.deleteAll();
+        couponUsageRepository.deleteAll();
+        usageUserRepository.deleteAll();
+        couponRepository.deleteAll();
+        lockRepository.deleteAll();
+    }
+
+    @Test
+    void useCoupon_ShouldRecordCompactUsageAndRejectSecondUse() {
+        // Given
+        Coupon coupon = couponService.createCoupon("COMPACT", 5, "US");
+
+        // When
+        couponService.useCoupon("COMPACT", "user1", "192.168.1.1", "US");
+
+        // Then
+        assertEquals(1, compactUsageRepository.countByCouponId(coupon.getId()));
+        assertEquals(0, couponUsageRepository.count());
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () ->
+            couponService.useCoupon("COMPACT", "user1", "192.168.1.1", "US")
+        );
+        assertEquals("User has already used this coupon", exception.getMessage());
+    }
+
+    @Test
+    void getUserCouponHistory_ShouldPageThroughCompactUsages() {
+        // Given
+        for (int i = 1; i <= 3; i++) {
+            couponService.createCoupon("HIST" + i, 5, "US");
+            couponService.useCoupon("HIST" + i, "user1", "192.168.1.1", "US");
+        }
+
+        // When
+        UserCouponHistory first = couponService.getUserCouponHistory("user1", null, 2);
+        UserCouponHistory second = couponService.getUserCouponHistory("user1", first.nextCursor(), 2);
+
+        // Then
+        assertEquals(2, first.items().size());
+        assertNotNull(first.nextCursor());
+        assertEquals(1, second.items().size());
+        assertNull(second.nextCursor());
+        assertEquals(0, couponService.getUserCouponHistory("nobody", null, 2).items().size());
+    }
+
+    @Test
+    void intern_ShouldProbePastHashHeldByAnotherUser() {
+        // Given
+        long hash = CompactUsageStore.hash("alice");
+        transactionTemplate.executeWithoutResult(status -> usageUserRepository.insert(hash, "mallory"));
+        couponService.createCoupon("COLLIDE", 5, "US");
+
+        // When
+        couponService.useCoupon("COLLIDE", "alice", "192.168.1.1", "US");
+        couponService.useCoupon("COLLIDE", "mallory", "192.168.1.1", "US");
+
+        // Then
+        assertEquals(hash + 1, usageUserRepository.findHashByUserId("alice").orElseThrow());
+        assertEquals(hash, usageUserRepository.findHashByUserId("mallory").orElseThrow());
+        assertEquals(2, couponRepository.findByCodeIgnoreCaseWithoutLock("COLLIDE").orElseThrow().getCurrentUses());
+    }
+
+    @Test
+    void migrate_ShouldConvertStandardUsages() {
+        // Given
+        Coupon coupon = couponService.createCoupon("LEGACY", 5, "US");
+        for (int i = 0; i < 3; i++) {
+            couponUsageRepository.save(new CouponUsage(coupon, "user" + i));
+        }
+
+        // When
+        long migrated = migration.migrate();
+
+        // Then
+        assertEquals(3, migrated);
+        assertEquals(0, couponUsageRepository.count());
+        assertEquals(3, compactUsageRepository.countByCouponId(coupon.getId()));
+        assertThrows(IllegalStateException.class, () ->
+            couponService.useCoupon("LEGACY", "user0", "192.168.1.1", "US")
+        );
+        assertEquals(1, couponService.getUserCouponHistory("user2", null, 10).items().size());
+    }
+
+    @Test
+    void migrate_ShouldSkipWhileAnotherNodeHoldsTheLockAndKeepCheckingLegacyUsages() {
+        // Given
+        migration.migrate();
+        Coupon coupon = couponService.createCoupon("LATE", 5, "US");
+        for (int i = 0; i < 3; i++) {
+            couponUsageRepository.save(new CouponUsage(coupon, "user" + i));
+        }
+        long now = System.currentTimeMillis();
+        transactionTemplate.executeWithoutResult(status ->
+            lockRepository.acquire(CompactUsageMigration.LOCK_NAME, "other-node", now, now + 3_600_000));
+
+        // When
+        long migrated = migration.migrate();
+
+        // Then
+        assertEquals(0, migrated);
+        assertEquals(3, couponUsageRepository.count());
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () ->
+            couponService.useCoupon("LATE", "user0", "192.168.1.1", "US")
+        );
+        assertEquals("User has already used this coupon", exception.getMessage());
+
+        // When
+        transactionTemplate.executeWithoutResult(status ->
+            lockRepository.release(CompactUsageMigration.LOCK_NAME, "other-node"));
+
+        // Then
+        assertEquals(3, migration.migrate());
+        assertEquals(0, couponUsageRepository.count());
+    }
+
+    @Test
+    void archive_ShouldMoveCompactUsages() {
+        // Given
+        Coupon coupon = couponService.createCoupon("DONE", 2, "US");
+        couponService.useCoupon("DONE", "user1", "192.168.1.1", "US");
+        couponService.useCoupon("DONE", "user2", "192.168.1.1", "US");
+
+        // When
+        int archived = couponArchiver.archive();
+
+        // Then
+        assertEquals(1, archived);
+        assertEquals(0, compactUsageRepository.countByCouponId(coupon.getId()));
+        assertEquals(2, archivedCompactUsageRepository.countByCouponId(coupon.getId()));
+    }
+
+    @Test
+    void history_ShouldStillListArchivedCompactUsages() {
+        // Given
+        couponService.createCoupon("DONE", 1, "US");
+        couponService.useCoupon("DONE", "user1", "192.168.1.1", "US");
+        couponService.createCoupon("OPEN", 5, "US");
+        couponService.useCoupon("OPEN", "user1", "192.168.1.1", "US");
+        assertEquals(1, couponArchiver.archive());
+
+        // When
+        UserCouponHistory first = couponService.getUserCouponHistory("user1", null, 1);
+        UserCouponHistory second = couponService.getUserCouponHistory("user1", first.nextCursor(), 1);
+
+        // Then
+        assertEquals("OPEN", first.items().get(0).code());
+        assertEquals(1, second.items().size());
+        assertEquals("DONE", second.items().get(0).code());
+    }
+
+    @Test
+    void history_ShouldIncludeUsagesNotYetMigrated() {
+        // Given
+        couponService.createCoupon("COMPACTED", 5, "US");
+        couponService.useCoupon("COMPACTED", "user1", "192.168.1.1", "US");
+        Coupon pending = couponService.createCoupon("PENDING", 5, "US");
+        couponUsageRepository.save(new CouponUsage(pending, "user1"));
+        couponUsageRepository.save(new CouponUsage(pending, "legacy-only"));
+        usageStore.setLegacyUsagesPresent(true);
+
+        // When
+        UserCouponHistory first = couponService.getUserCouponHistory("user1", null, 1);
+        UserCouponHistory second = couponService.getUserCouponHistory("user1", first.nextCursor(), 1);
+
+        // Then
+        assertEquals("PENDING", first.items().get(0).code());
+        assertEquals(1, second.items().size());
+        assertEquals("COMPACTED", second.items().get(0).code());
+        assertEquals(1, couponService.getUserCouponHistory("legacy-only", null, 10).items().size());
+    }
+}
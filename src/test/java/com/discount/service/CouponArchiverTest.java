@@ -0,0 +1,162 @@
+package com.discount.service;
+
+import com.discount.dto.CouponView;
+import com.discount.dto.UserCouponHistory;
+import com.discount.dto.UserCouponUsage;
+import com.discount.model.Coupon;
+import com.discount.repository.ArchivedCouponRepository;
+import com.discount.repository.ArchivedCouponUsageRepository;
+import com.discount.repository.CouponRepository;
+import com.discount.repository.CouponReservationRepository;
+import com.discount.repository.CouponUsageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Not transactional: the archiver commits each chunk on its own
+@SpringBootTest(properties = "coupon.archive.usage-chunk-size=2")
+@ActiveProfiles("test")
+class CouponArchiverTest {
+
+    @Autowired
+    private CouponArchiver couponArchiver;
+
+    @Autowired
+    private CouponService couponService;
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private CouponRepository couponRepository;
+
+    @Autowired
+    private CouponUsageRepository couponUsageRepository;
+
+    @Autowired
+    private CouponReservationRepository reservationRepository;
+
+    @Autowired
+    private ArchivedCouponRepository archivedCouponRepository;
+
+    @Autowired
+    private ArchivedCouponUsageRepository archivedCouponUsageRepository;
+
+    @BeforeEach
+    void setUp() {
+        archivedCouponUsageRepository.deleteAll();
+        archivedCouponRepository.deleteAll();
+        reservationRepository.deleteAll();
+        couponUsageRepository.deleteAll();
+        couponRepository.deleteAll();
+    }
+
+    @Test
+    void archive_ShouldMoveExhaustedCouponAndUsages() {
+        // Given
+        couponService.createCoupon("EXHAUSTED", 5, "US");
+        for (int i = 0; i < 5; i++) {
+            couponService.useCoupon("EXHAUSTED", "user" + i, "192.168.1.1", "US");
+        }
+        couponService.createCoupon("ACTIVE", 5, "US");
+        couponService.useCoupon("ACTIVE", "user1", "192.168.1.1", "US");
+
+        // When
+        int archived = couponArchiver.archive();
+
+        // Then
+        assertEquals(1, archived);
+        assertTrue(couponRepository.findByCodeIgnoreCaseWithoutLock("EXHAUSTED").isEmpty());
+        Long archivedId = archivedCouponRepository.findByCodeIgnoreCase("EXHAUSTED").orElseThrow().getId();
+        assertEquals(5, archivedCouponUsageRepository.countByCouponId(archivedId));
+        assertEquals(1, couponUsageRepository.count());
+        assertEquals(1, couponService.getAllCoupons().size());
+    }
+
+    @Test
+    void history_ShouldStillListUsagesOfArchivedCoupons() {
+        // Given
+        for (String code : List.of("OLD1", "OLD2")) {
+            couponService.createCoupon(code, 1, "US");
+            couponService.useCoupon(code, "history-user", "192.168.1.1", "US");
+        }
+        for (String code : List.of("LIVE1", "LIVE2")) {
+            couponService.createCoupon(code, 5, "US");
+            couponService.useCoupon(code, "history-user", "192.168.1.1", "US");
+        }
+        assertEquals(2, couponArchiver.archive());
+
+        // When
+        UserCouponHistory first = couponService.getUserCouponHistory("history-user", null, 3);
+        UserCouponHistory second = couponService.getUserCouponHistory("history-user", first.nextCursor(), 3);
+
+        // Then
+        assertEquals(List.of("LIVE2", "LIVE1", "OLD2"), first.items().stream().map(UserCouponUsage::code).toList());
+        assertEquals(List.of("OLD1"), second.items().stream().map(UserCouponUsage::code).toList());
+        assertNull(second.nextCursor());
+    }
+
+    @Test
+    void archive_ShouldMoveExpiredCoupon() {
+        // Given
+        Long couponId = couponService.createCoupon("ENDED", 5, "US",
+            LocalDateTime.now().minusDays(2), LocalDateTime.now().plusDays(1)).getId();
+        couponService.useCoupon("ENDED", "user1", "192.168.1.1", "US");
+        Coupon expired = couponRepository.findById(couponId).orElseThrow();
+        expired.setValidUntil(LocalDateTime.now().minusMinutes(1));
+        couponRepository.save(expired);
+
+        // When
+        int archived = couponArchiver.archive();
+
+        // Then
+        assertEquals(1, archived);
+        assertTrue(archivedCouponRepository.findByCodeIgnoreCase("ENDED").isPresent());
+        assertEquals(0, couponUsageRepository.count());
+    }
+
+    @Test
+    void archive_ShouldKeepCouponWithOutstandingReservation() {
+        // Given
+        Coupon coupon = couponService.createCoupon("HELD", 5, "US");
+        reservationService.reserve("HELD", "user1", "192.168.1.1", "US");
+        coupon = couponRepository.findById(coupon.getId()).orElseThrow();
+        coupon.setValidUntil(LocalDateTime.now().minusMinutes(1));
+        couponRepository.save(coupon);
+
+        // When
+        int archived = couponArchiver.archive();
+
+        // Then
+        assertEquals(0, archived);
+        assertTrue(couponRepository.findByCodeIgnoreCaseWithoutLock("HELD").isPresent());
+    }
+
+    @Test
+    void archivedCoupon_ShouldStillBeServedOnLookup() {
+        // Given
+        couponService.createCoupon("GONE", 1, "US");
+        couponService.useCoupon("GONE", "user1", "192.168.1.1", "US");
+        couponArchiver.archive();
+
+        // When
+        CouponView found = couponService.getCouponByCode("gone");
+
+        // Then
+        assertEquals("GONE", found.code());
+        assertEquals(1, found.currentUses());
+        assertFalse(found.available());
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () ->
+            couponService.useCoupon("GONE", "user2", "192.168.1.1", "US")
+        );
+        assertEquals("Coupon is no longer active", exception.getMessage());
+        assertThrows(IllegalStateException.class, () -> couponService.createCoupon("GONE", 1, "US"));
+    }
+}
@@ -1,5 +1,9 @@
 package com.discount.service;
 
+import com.discount.dto.CouponView;
+import com.discount.dto.UserCouponHistory;
+import com.discount.dto.UserCouponUsage;
+import com.discount.model.CountryMode;
 import com.discount.model.Coupon;
 import com.discount.repository.CouponRepository;
 import com.discount.repository.CouponUsageRepository;
@@ -11,8 +15,10 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -89,12 +95,12 @@ class CouponServiceTest {
         couponRepository.saveAll(List.of(coupon1, coupon2));
 
         // When
-        List<Coupon> coupons = couponService.getAllCoupons();
+        List<CouponView> coupons = couponService.getAllCoupons();
 
         // Then
         assertFalse(coupons.isEmpty());
-        assertTrue(coupons.stream().anyMatch(c -> c.getCode().equals("CODE1")));
-        assertTrue(coupons.stream().anyMatch(c -> c.getCode().equals("CODE2")));
+        assertTrue(coupons.stream().anyMatch(c -> c.code().equals("CODE1")));
+        assertTrue(coupons.stream().anyMatch(c -> c.code().equals("CODE2")));
     }
 
     @Test
@@ -103,11 +109,55 @@ class CouponServiceTest {
         String code = "TEST123";
 
         // When
-        Coupon found = couponService.getCouponByCode(code);
+        CouponView found = couponService.getCouponByCode(code);
 
         // Then
         assertNotNull(found);
-        assertEquals(code, found.getCode());
+        assertEquals(code, found.code());
+        assertEquals(CountryMode.ALLOW, found.countryMode());
+        assertTrue(found.countries().contains("US"));
+    }
+
+    @Test
+    void coupon_ShouldEqualItsLazyProxy() {
+        // Given
+        Coupon loaded = couponRepository.findByCodeIgnoreCaseWithoutLock("TEST123").orElseThrow();
+        entityManager.clear();
+
+        // When
+        Coupon proxy = entityManager.getReference(Coupon.class, loaded.getId());
+
+        // Then
+        assertNotSame(Coupon.class, proxy.getClass());
+        assertEquals(proxy, loaded);
+        assertEquals(loaded, proxy);
+        assertEquals(loaded.hashCode(), proxy.hashCode());
+    }
+
+    @Test
+    void findCachedETag_ShouldFollowTheVersionOnceTheCouponWasRead() {
+        // Given
+        assertTrue(couponService.findCachedETag("TEST123").isEmpty());
+        CouponView coupon = couponService.getCouponByCode("TEST123");
+
+        // When
+        String eTag = couponService.findCachedETag("test123").orElseThrow();
+
+        // Then
+        assertEquals("\"" + coupon.id() + "-" + coupon.version() + "\"", eTag);
+    }
+
+    @Test
+    void getCouponsETag_ShouldChangeWhenACouponChanges() {
+        // Given
+        String before = couponService.getCouponsETag();
+
+        // When
+        couponService.useCoupon("TEST123", "user1", "192.168.1.1", "US");
+        entityManager.flush();
+
+        // Then
+        assertNotEquals(before, couponService.getCouponsETag());
     }
 
     @Test
@@ -244,4 +294,124 @@ class CouponServiceTest {
         assertEquals(1, updatedCoupon.getCurrentUses());
         assertTrue(couponUsageRepository.findByCouponIdAndUserId(updatedCoupon.getId(), "user1").isPresent());
     }
-} 
\ No newline at end of file
+
+    @Test
+    void getUserCouponHistory_ShouldPageThroughUsagesNewestFirst() {
+        // Given
+        for (int i = 1; i <= 5; i++) {
+            couponRepository.save(new Coupon("HIST" + i, 5, "US"));
+            couponService.useCoupon("HIST" + i, "history-user", "192.168.1.1", "US");
+        }
+        couponService.useCoupon("HIST1", "someone-else", "192.168.1.1", "US");
+
+        // When
+        UserCouponHistory first = couponService.getUserCouponHistory("history-user", null, 2);
+        UserCouponHistory second = couponService.getUserCouponHistory("history-user", first.nextCursor(), 2);
+        UserCouponHistory third = couponService.getUserCouponHistory("history-user", second.nextCursor(), 2);
+
+        // Then
+        assertEquals(2, first.items().size());
+        assertEquals(2, second.items().size());
+        assertEquals(1, third.items().size());
+        assertNull(third.nextCursor());
+        List<String> codes = Stream.of(first, second, third)
+            .flatMap(page -> page.items().stream())
+            .map(UserCouponUsage::code)
+            .toList();
+        assertEquals(List.of("HIST5", "HIST4", "HIST3", "HIST2", "HIST1"), codes);
+    }
+
+    @Test
+    void getUserCouponHistory_ShouldReturnEmptyPage_WhenUserHasNoUsages() {
+        // When
+        UserCouponHistory history = couponService.getUserCouponHistory("nobody", null, 20);
+
+        // Then
+        assertTrue(history.items().isEmpty());
+        assertNull(history.nextCursor());
+    }
+
+    @Test
+    void getUserCouponHistory_ShouldThrowException_WhenCursorInvalid() {
+        // When & Then
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () ->
+            couponService.getUserCouponHistory("history-user", "not-a-cursor", 20)
+        );
+        assertEquals("Invalid cursor", exception.getMessage());
+    }
+
+    @Test
+    void useCoupon_ShouldThrowException_WhenCouponExpired() {
+        // Given
+        couponService.createCoupon("EXPIRED", 5, "US",
+            LocalDateTime.now().minusDays(2), LocalDateTime.now().minusDays(1));
+
+        // When & Then
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () ->
+            couponService.useCoupon("EXPIRED", "user1", "192.168.1.1", "US")
+        );
+        assertEquals("Coupon has expired", exception.getMessage());
+    }
+
+    @Test
+    void useCoupon_ShouldThrowException_WhenCouponNotYetValid() {
+        // Given
+        couponService.createCoupon("FUTURE", 5, "US", LocalDateTime.now().plusDays(1), null);
+
+        // When & Then
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () ->
+            couponService.useCoupon("FUTURE", "user1", "192.168.1.1", "US")
+        );
+        assertEquals("Coupon is not yet valid", exception.getMessage());
+    }
+
+    @Test
+    void createCoupon_ShouldThrowException_WhenValidityWindowEmpty() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () ->
+            couponService.createCoupon("EMPTY", 5, "US", now, now.minusHours(1))
+        );
+    }
+
+    @Test
+    void useCoupon_ShouldMatchAnyCountryInAllowList() {
+        // Given
+        couponService.createCoupon("EUROPE", 5, CountryMode.ALLOW, List.of("DE", "FR", "IT"), null, null);
+
+        // When
+        couponService.useCoupon("EUROPE", "user1", "192.168.1.1", "fr");
+
+        // Then
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () ->
+            couponService.useCoupon("EUROPE", "user2", "192.168.1.1", "US")
+        );
+        assertEquals("Coupon is not valid for your country", exception.getMessage());
+        assertEquals(1, couponRepository.findByCodeIgnoreCase("EUROPE").orElseThrow().getCurrentUses());
+    }
+
+    @Test
+    void useCoupon_ShouldRejectCountryInDenyList() {
+        // Given
+        couponService.createCoupon("NOTEU", 5, CountryMode.DENY, List.of("DE", "FR"), null, null);
+
+        // When
+        couponService.useCoupon("NOTEU", "user1", "192.168.1.1", "US");
+
+        // Then
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () ->
+            couponService.useCoupon("NOTEU", "user2", "192.168.1.1", "DE")
+        );
+        assertEquals("Coupon is not valid for your country", exception.getMessage());
+    }
+
+    @Test
+    void createCoupon_ShouldThrowException_WhenCountryCodeInvalid() {
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () ->
+            couponService.createCoupon("BADCOUNTRY", 5, CountryMode.ALLOW, List.of("DE", "EUR"), null, null)
+        );
+    }
+}
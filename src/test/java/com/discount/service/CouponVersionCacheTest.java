@@ -0,0 +1,42 @@
+package com.discount.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.OptionalLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CouponVersionCacheTest {
+
+    @Test
+    void record_ShouldKeepTheNewestVersion() {
+        // Given
+        CouponVersionCache cache = new CouponVersionCache(Duration.ofMinutes(1), 100);
+
+        // When
+        cache.record(1L, 5L);
+        cache.record(1L, 4L);
+
+        // Then
+        assertEquals(OptionalLong.of(5), cache.get(1L));
+    }
+
+    @Test
+    void get_ShouldForgetExpiredAndEvictedEntries() throws InterruptedException {
+        // Given
+        CouponVersionCache cache = new CouponVersionCache(Duration.ofMillis(50), 100);
+        cache.record(1L, 5L);
+        cache.record(2L, 1L);
+
+        // When
+        cache.evict(2L);
+        Thread.sleep(100);
+
+        // Then
+        assertTrue(cache.get(1L).isEmpty());
+        assertTrue(cache.get(2L).isEmpty());
+        cache.record(1L, 3L);
+        assertEquals(OptionalLong.of(3), cache.get(1L));
+    }
+}
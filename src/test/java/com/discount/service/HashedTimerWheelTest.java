@@ -0,0 +1,84 @@
+package com.discount.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashedTimerWheelTest {
+
+    private final HashedTimerWheel wheel = new HashedTimerWheel("test-wheel", Duration.ofMillis(10), 8);
+
+    @AfterEach
+    void tearDown() {
+        wheel.close();
+    }
+
+    @Test
+    void schedule_ShouldFireAfterDelay() throws Exception {
+        // Given
+        CountDownLatch fired = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        // When
+        HashedTimerWheel.Timeout timeout = wheel.schedule(fired::countDown, Duration.ofMillis(50));
+
+        // Then
+        assertTrue(fired.await(2, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertTrue(timeout.isExpired());
+        assertEquals(0, wheel.pendingTimeouts());
+    }
+
+    @Test
+    void schedule_ShouldFireAfterMultipleRotations() throws Exception {
+        // Given - 8 slots of 10ms, so a 200ms delay needs more than two full rotations
+        CountDownLatch fired = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        // When
+        wheel.schedule(fired::countDown, Duration.ofMillis(200));
+
+        // Then
+        assertTrue(fired.await(2, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+    }
+
+    @Test
+    void cancel_ShouldPreventExpiry() throws Exception {
+        // Given
+        AtomicInteger fired = new AtomicInteger();
+        HashedTimerWheel.Timeout timeout = wheel.schedule(fired::incrementAndGet, Duration.ofMillis(30));
+
+        // When
+        assertTrue(timeout.cancel());
+        Thread.sleep(150);
+
+        // Then
+        assertEquals(0, fired.get());
+        assertTrue(timeout.isCancelled());
+        assertFalse(timeout.cancel());
+        assertEquals(0, wheel.pendingTimeouts());
+    }
+
+    @Test
+    void schedule_ShouldExpireManyTimeouts() throws Exception {
+        // Given
+        int count = 10_000;
+        CountDownLatch fired = new CountDownLatch(count);
+
+        // When
+        for (int i = 0; i < count; i++) {
+            wheel.schedule(fired::countDown, Duration.ofMillis(i % 100));
+        }
+
+        // Then
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+        assertEquals(0, wheel.pendingTimeouts());
+    }
+}
@@ -0,0 +1,180 @@
+package com.discount.service;
+
+import com.discount.DiscountCouponsApplication;
+import com.discount.model.Coupon;
+import com.discount.repository.CouponLeaseRepository;
+import com.discount.repository.CouponRepository;
+import com.discount.repository.CouponUsageRepository;
+import org.h2.tools.Server;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Several application contexts sharing one H2 server-mode database, as separate nodes would
+class QuotaLeaseServiceTest {
+
+    private static Server server;
+    private static String url;
+
+    @BeforeAll
+    static void startDatabase() throws SQLException {
+        server = Server.createTcpServer("-tcpPort", "0", "-ifNotExists").start();
+        url = "jdbc:h2:tcp://localhost:" + server.getPort() + "/mem:leasing;DB_CLOSE_DELAY=-1";
+    }
+
+    @AfterAll
+    static void stopDatabase() {
+        server.stop();
+    }
+
+    @Test
+    void redeem_ShouldLeaseBlocksAndReturnUnusedOnShutdown() {
+        // Given
+        ConfigurableApplicationContext node = startNode("node-a");
+        Long couponId;
+        try {
+            CouponService couponService = node.getBean(CouponService.class);
+            couponId = couponService.createCoupon("LEASE1", 20, "US").getId();
+
+            // When
+            couponService.useCoupon("LEASE1", "user1", "192.168.1.1", "US");
+            couponService.useCoupon("LEASE1", "user2", "192.168.1.1", "US");
+
+            // Then - a whole block is taken from the budget, not just the two uses
+            Coupon leased = node.getBean(CouponRepository.class).findById(couponId).orElseThrow();
+            assertEquals(5, leased.getCurrentUses());
+        } finally {
+            node.close();
+        }
+
+        ConfigurableApplicationContext verifier = startNode("verifier");
+        try {
+            Coupon coupon = verifier.getBean(CouponRepository.class).findById(couponId).orElseThrow();
+            assertEquals(2, coupon.getCurrentUses());
+        } finally {
+            verifier.close();
+        }
+    }
+
+    @Test
+    void redeem_ShouldNeverExceedMaxUsesAcrossNodes() throws Exception {
+        // Given
+        int maxUses = 23;
+        ConfigurableApplicationContext nodeA = startNode("node-a");
+        ConfigurableApplicationContext nodeB = startNode("node-b");
+        Long couponId = nodeA.getBean(CouponService.class).createCoupon("LEASE2", maxUses, "US").getId();
+        List<CouponService> nodes = List.of(nodeA.getBean(CouponService.class), nodeB.getBean(CouponService.class));
+
+        // When - 60 users redeem concurrently, alternating between the nodes
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            CouponService node = nodes.get(i % 2);
+            String userId = "user" + i;
+            results.add(executor.submit(() -> {
+                try {
+                    node.useCoupon("LEASE2", userId, "192.168.1.1", "US");
+                    return true;
+                } catch (IllegalStateException e) {
+                    return false;
+                }
+            }));
+        }
+        int succeeded = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get()) {
+                succeeded++;
+            }
+        }
+        executor.shutdown();
+
+        // Then
+        assertTrue(succeeded <= maxUses);
+        assertEquals(succeeded, countUsages(nodeA, couponId));
+
+        // Once node B hands back its unused block, node A can redeem the rest and no more
+        nodeB.close();
+        CouponService couponService = nodeA.getBean(CouponService.class);
+        for (int i = 0; succeeded < maxUses; i++) {
+            couponService.useCoupon("LEASE2", "late" + i, "192.168.1.1", "US");
+            succeeded++;
+        }
+        assertThrows(IllegalStateException.class, () ->
+            couponService.useCoupon("LEASE2", "one-too-many", "192.168.1.1", "US")
+        );
+        assertEquals(maxUses, countUsages(nodeA, couponId));
+        nodeA.close();
+    }
+
+    @Test
+    void redeem_ShouldRejectSameUserOnAnotherNode() {
+        // Given
+        ConfigurableApplicationContext nodeA = startNode("node-a");
+        ConfigurableApplicationContext nodeB = startNode("node-b");
+        try {
+            nodeA.getBean(CouponService.class).createCoupon("LEASE3", 10, "US");
+            nodeA.getBean(CouponService.class).useCoupon("LEASE3", "user1", "192.168.1.1", "US");
+
+            // When & Then
+            IllegalStateException exception = assertThrows(IllegalStateException.class, () ->
+                nodeB.getBean(CouponService.class).useCoupon("LEASE3", "user1", "192.168.1.1", "US")
+            );
+            assertEquals("User has already used this coupon", exception.getMessage());
+        } finally {
+            nodeB.close();
+            nodeA.close();
+        }
+    }
+
+    @Test
+    void returnAll_ShouldKeepLease_WhenUsesCannotBeReturned() {
+        // Given
+        ConfigurableApplicationContext node = startNode("node-a");
+        try {
+            Long couponId = node.getBean(CouponService.class).createCoupon("LEASE4", 10, "US").getId();
+            node.getBean(CouponService.class).useCoupon("LEASE4", "user1", "192.168.1.1", "US");
+            node.getBean(JdbcTemplate.class).update("UPDATE coupon SET current_uses = 0 WHERE id = ?", couponId);
+
+            // When
+            int returned = node.getBean(QuotaLeaseService.class).returnAll();
+
+            // Then
+            assertEquals(0, returned);
+            assertEquals(1, node.getBean(CouponLeaseRepository.class).countByCouponId(couponId));
+            node.getBean(JdbcTemplate.class).update("UPDATE coupon SET current_uses = 5 WHERE id = ?", couponId);
+        } finally {
+            node.close();
+        }
+    }
+
+    private long countUsages(ConfigurableApplicationContext node, Long couponId) {
+        return node.getBean(CouponUsageRepository.class).findAll().stream()
+                .filter(usage -> usage.getCoupon().getId().equals(couponId))
+                .count();
+    }
+
+    private ConfigurableApplicationContext startNode(String nodeId) {
+        return new SpringApplicationBuilder(DiscountCouponsApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=" + url,
+                     "--spring.datasource.password=",
+                     "--spring.jpa.hibernate.ddl-auto=update",
+                     "--spring.jpa.show-sql=false",
+                     "--coupon.leasing.enabled=true",
+                     "--coupon.leasing.block-size=5",
+                     "--coupon.leasing.node-id=" + nodeId);
+    }
+}
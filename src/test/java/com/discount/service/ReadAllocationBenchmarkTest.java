@@ -0,0 +1,79 @@
+package com.discount.service;
+
+import com.discount.model.Coupon;
+import com.discount.repository.CouponRepository;
+import com.discount.repository.CouponUsageRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+// Bytes allocated per read request, entities versus constructor-projected views, including the
+// JSON serialization of the result.
+// Run with: mvn test -Dtest=ReadAllocationBenchmarkTest -Dallocation.benchmark=true
+@EnabledIfSystemProperty(named = "allocation.benchmark", matches = "true")
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+class ReadAllocationBenchmarkTest {
+    private static final int COUPONS = 1000;
+    private static final int WARMUP_ROUNDS = 500;
+    private static final int MEASURED_ROUNDS = 500;
+
+    @Autowired
+    private CouponService couponService;
+
+    @Autowired
+    private CouponRepository couponRepository;
+
+    @Autowired
+    private CouponUsageRepository couponUsageRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void compareEntitiesAndViews() throws Exception {
+        couponUsageRepository.deleteAll();
+        couponRepository.deleteAll();
+        List<Coupon> coupons = new ArrayList<>();
+        for (int i = 0; i < COUPONS; i++) {
+            coupons.add(new Coupon("ALLOC" + i, 100, "US"));
+        }
+        couponRepository.saveAll(coupons);
+
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        System.out.printf("%-28s %14s%n", "request", "bytes/request");
+        measure("list, entities", () -> objectMapper.writeValueAsBytes(
+                readOnly.execute(status -> couponRepository.findAll())));
+        measure("list, views", () -> objectMapper.writeValueAsBytes(couponService.getAllCoupons()));
+        measure("single, entity", () -> objectMapper.writeValueAsBytes(
+                readOnly.execute(status -> couponRepository.findByCodeIgnoreCaseWithoutLock("ALLOC500").orElseThrow())));
+        measure("single, view", () -> objectMapper.writeValueAsBytes(couponService.getCouponByCode("ALLOC500")));
+    }
+
+    private static void measure(String request, Callable<byte[]> call) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            call.call();
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            call.call();
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+        System.out.printf("%-28s %,14d%n", request, allocated / MEASURED_ROUNDS);
+    }
+}
@@ -0,0 +1,108 @@
+package com.discount.service;
+
+import com.discount.exception.ServiceDrainingException;
+import com.discount.model.Coupon;
+import com.discount.repository.CouponRepository;
+import com.discount.repository.CouponUsageRepository;
+import com.discount.repository.CouponUsageRollupRepository;
+import com.discount.service.RedemptionDrain.DrainReport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Not transactional: the drain waits for redemptions committed on other threads
+@SpringBootTest
+@ActiveProfiles("test")
+class RedemptionDrainTest {
+
+    @Autowired
+    private RedemptionDrain redemptionDrain;
+
+    @Autowired
+    private RedemptionGate redemptionGate;
+
+    @Autowired
+    private CouponService couponService;
+
+    @Autowired
+    private UsageRollupService usageRollupService;
+
+    @Autowired
+    private CouponRepository couponRepository;
+
+    @Autowired
+    private CouponUsageRepository couponUsageRepository;
+
+    @Autowired
+    private CouponUsageRollupRepository rollupRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        usageRollupService.flush();
+        rollupRepository.deleteAll();
+        couponUsageRepository.deleteAll();
+        couponRepository.deleteAll();
+        couponRepository.save(new Coupon("DRAIN", 10, "US"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        // The context is shared with other tests
+        redemptionGate.open();
+    }
+
+    @Test
+    void drain_ShouldWaitForInFlightRedemptionsThenFlushBuffers() throws Exception {
+        // Given
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> redemption = CompletableFuture.runAsync(() ->
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                couponService.useCoupon("DRAIN", "user1", "192.168.1.1", "US");
+                entered.countDown();
+                await(release);
+            }));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        // When
+        CompletableFuture<DrainReport> drain = CompletableFuture.supplyAsync(redemptionDrain::drain);
+        Thread.sleep(200);
+
+        // Then
+        assertFalse(drain.isDone());
+        assertThrows(ServiceDrainingException.class, () ->
+            couponService.useCoupon("DRAIN", "user2", "192.168.1.1", "US"));
+        release.countDown();
+        redemption.get(5, TimeUnit.SECONDS);
+        DrainReport report = drain.get(5, TimeUnit.SECONDS);
+        assertEquals(1, report.inFlightAtClose());
+        assertEquals(0, report.stillInFlight());
+        assertEquals(0, report.flushed().get("leased uses"));
+        assertEquals(1, couponUsageRepository.count());
+        // One minute and one hour bucket, written by the drain unless a scheduled flush got there first
+        assertTrue(report.flushed().containsKey("usage rollups"));
+        assertEquals(2, rollupRepository.count());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.discount.service;
+
+import com.discount.exception.ServiceDrainingException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RedemptionGateTest {
+    private final RedemptionGate gate = new RedemptionGate();
+
+    @BeforeEach
+    void setUp() {
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void awaitDrained_ShouldWaitUntilAdmittedTransactionsComplete() throws InterruptedException {
+        // Given
+        gate.admit();
+        assertEquals(1, gate.close());
+
+        // When
+        boolean drainedWhileOpen = gate.awaitDrained(Duration.ofMillis(50));
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        // Then
+        assertFalse(drainedWhileOpen);
+        assertTrue(gate.awaitDrained(Duration.ofMillis(50)));
+        assertEquals(0, gate.inFlight());
+    }
+
+    @Test
+    void admit_ShouldTurnAwayRedemptions_WhenClosed() {
+        // Given
+        gate.close();
+
+        // When & Then
+        assertThrows(ServiceDrainingException.class, gate::admit);
+        assertEquals(0, gate.inFlight());
+        gate.open();
+        gate.admit();
+        assertEquals(1, gate.inFlight());
+    }
+}
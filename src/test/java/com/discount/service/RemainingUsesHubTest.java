@@ -0,0 +1,178 @@
+package com.discount.service;
+
+import com.discount.model.Coupon;
+import com.discount.repository.CouponRepository;
+import com.discount.repository.CouponUsageRepository;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Not transactional: updates are only published once a redemption has committed
+@SpringBootTest(properties = "coupon.live.min-interval=2s")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class RemainingUsesHubTest {
+    private static final Pattern EVENT = Pattern.compile("\"remainingUses\":(\\d+)");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private RemainingUsesHub remainingUsesHub;
+
+    @Autowired
+    private CouponService couponService;
+
+    @Autowired
+    private CouponRepository couponRepository;
+
+    @Autowired
+    private CouponUsageRepository couponUsageRepository;
+
+    @BeforeEach
+    void setUp() {
+        couponUsageRepository.deleteAll();
+        couponRepository.deleteAll();
+        couponRepository.save(new Coupon("LIVE", 10, null));
+    }
+
+    @Test
+    void stream_ShouldSendCurrentValueAndLaterRedemptions() throws Exception {
+        // Given
+        MockHttpServletResponse response = subscribe("live");
+        assertEquals(List.of(10), awaitEvents(response, 1));
+
+        // When
+        couponService.useCoupon("LIVE", "user1", "192.168.1.1", "US");
+
+        // Then
+        assertEquals(List.of(10, 9), awaitEvents(response, 2));
+    }
+
+    @Test
+    void stream_ShouldCoalesceBurstsToTheLatestValue() throws Exception {
+        // Given
+        MockHttpServletResponse response = subscribe("LIVE");
+        couponService.useCoupon("LIVE", "user0", "192.168.1.1", "US");
+        awaitEvents(response, 2);
+
+        // When
+        for (int i = 1; i <= 5; i++) {
+            couponService.useCoupon("LIVE", "user" + i, "192.168.1.1", "US");
+        }
+
+        // Then
+        List<Integer> events = awaitEvents(response, 3);
+        Thread.sleep(500);
+        assertEquals(List.of(10, 9, 4), remainingUses(response));
+        assertEquals(3, events.size());
+    }
+
+    @Test
+    void publish_ShouldIgnoreUpdatesOlderThanTheLastOne() throws Exception {
+        // Given
+        MockHttpServletResponse response = subscribe("LIVE");
+        Coupon coupon = couponRepository.findByCodeIgnoreCaseWithoutLock("LIVE").orElseThrow();
+
+        // When
+        remainingUsesHub.publish(coupon.getId(), coupon.getVersion() + 2, 7);
+        remainingUsesHub.publish(coupon.getId(), coupon.getVersion() + 1, 8);
+
+        // Then
+        assertEquals(List.of(10, 7), awaitEvents(response, 2));
+        Thread.sleep(500);
+        assertEquals(List.of(10, 7), remainingUses(response));
+    }
+
+    @Test
+    void stream_ShouldForgetSubscribersWhoseStreamCompleted() throws Exception {
+        // Given
+        int before = remainingUsesHub.subscriberCount();
+        MvcResult result = subscribeForResult("LIVE");
+        assertEquals(before + 1, remainingUsesHub.subscriberCount());
+        awaitEvents(result.getResponse(), 1);
+
+        // When
+        asyncContext(result).complete();
+
+        // Then
+        assertEquals(before, remainingUsesHub.subscriberCount());
+        couponService.useCoupon("LIVE", "user1", "192.168.1.1", "US");
+        Thread.sleep(500);
+        assertEquals(List.of(10), remainingUses(result.getResponse()));
+    }
+
+    @Test
+    void stream_ShouldForgetSubscribersWhoseStreamTimedOut() throws Exception {
+        // Given
+        int before = remainingUsesHub.subscriberCount();
+        MvcResult result = subscribeForResult("LIVE");
+        MockAsyncContext asyncContext = asyncContext(result);
+
+        // When
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(new AsyncEvent(asyncContext));
+        }
+
+        // Then
+        assertEquals(before, remainingUsesHub.subscriberCount());
+    }
+
+    @Test
+    void stream_ShouldRejectUnknownCodes() throws Exception {
+        mockMvc.perform(get("/api/remaining-uses/stream").param("codes", "LIVE,MISSING"))
+                .andExpect(status().isNotFound());
+    }
+
+    private MockHttpServletResponse subscribe(String codes) throws Exception {
+        return subscribeForResult(codes).getResponse();
+    }
+
+    private MvcResult subscribeForResult(String codes) throws Exception {
+        return mockMvc.perform(get("/api/remaining-uses/stream").param("codes", codes))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    private static MockAsyncContext asyncContext(MvcResult result) {
+        return (MockAsyncContext) result.getRequest().getAsyncContext();
+    }
+
+    private static List<Integer> awaitEvents(MockHttpServletResponse response, int count) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        List<Integer> events = remainingUses(response);
+        while (events.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            events = remainingUses(response);
+        }
+        return events;
+    }
+
+    private static List<Integer> remainingUses(MockHttpServletResponse response) throws Exception {
+        List<Integer> values = new ArrayList<>();
+        Matcher matcher = EVENT.matcher(response.getContentAsString());
+        while (matcher.find()) {
+            values.add(Integer.parseInt(matcher.group(1)));
+        }
+        return values;
+    }
+}
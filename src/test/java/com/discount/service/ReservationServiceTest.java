@@ -0,0 +1,213 @@
+package com.discount.service;
+
+import com.discount.model.Coupon;
+import com.discount.model.CouponReservation;
+import com.discount.repository.CouponRepository;
+import com.discount.repository.CouponReservationRepository;
+import com.discount.repository.CouponUsageRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class ReservationServiceTest {
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private CouponService couponService;
+
+    @Autowired
+    private CouponRepository couponRepository;
+
+    @Autowired
+    private CouponUsageRepository couponUsageRepository;
+
+    @Autowired
+    private CouponReservationRepository reservationRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        reservationRepository.deleteAll();
+        couponUsageRepository.deleteAll();
+        couponRepository.deleteAll();
+        entityManager.flush();
+        entityManager.clear();
+
+        couponRepository.save(new Coupon("HOLD", 1, "US"));
+    }
+
+    @Test
+    void reserve_ShouldHoldSlotAgainstMaxUses() {
+        // When
+        CouponReservation reservation = reservationService.reserve("hold", "user1", "192.168.1.1", "US");
+
+        // Then
+        assertNotNull(reservation.getId());
+        assertTrue(reservation.getExpiresAt().isAfter(Instant.now()));
+        Coupon coupon = couponRepository.findByCodeIgnoreCase("HOLD").orElseThrow();
+        assertEquals(1, coupon.getReservedUses());
+        assertEquals(0, coupon.getCurrentUses());
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () ->
+            couponService.useCoupon("HOLD", "user2", "192.168.1.1", "US")
+        );
+        assertEquals("Coupon has reached maximum uses", exception.getMessage());
+    }
+
+    @Test
+    void reserve_ShouldThrowException_WhenUserAlreadyHoldsReservation() {
+        // Given
+        couponRepository.save(new Coupon("MULTI", 5, "US"));
+        reservationService.reserve("MULTI", "user1", "192.168.1.1", "US");
+
+        // When & Then
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () ->
+            reservationService.reserve("MULTI", "user1", "192.168.1.1", "US")
+        );
+        assertEquals("User already holds a reservation for this coupon", exception.getMessage());
+    }
+
+    @Test
+    void reserve_ShouldThrowException_WhenCountryMismatch() {
+        // When & Then
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () ->
+            reservationService.reserve("HOLD", "user1", "192.168.1.1", "UK")
+        );
+        assertEquals("Coupon is not valid for your country", exception.getMessage());
+    }
+
+    @Test
+    void reserve_ShouldStoreUnknownCountry_WhenCountryIsNotATwoLetterCode() {
+        // Given
+        couponRepository.save(new Coupon("ANYWHERE", 5, null));
+
+        // When
+        CouponReservation reservation = reservationService.reserve("ANYWHERE", "user1", "192.168.1.1", "USA");
+        entityManager.flush();
+
+        // Then
+        assertNull(reservationRepository.findById(reservation.getId()).orElseThrow().getCountry());
+    }
+
+    @Test
+    void confirm_ShouldRedeemReservedSlot() {
+        // Given
+        CouponReservation reservation = reservationService.reserve("HOLD", "user1", "192.168.1.1", "US");
+
+        // When
+        reservationService.confirm("HOLD", reservation.getId());
+
+        // Then
+        Coupon coupon = couponRepository.findByCodeIgnoreCase("HOLD").orElseThrow();
+        assertEquals(0, coupon.getReservedUses());
+        assertEquals(1, coupon.getCurrentUses());
+        assertTrue(couponUsageRepository.findByCouponIdAndUserId(coupon.getId(), "user1").isPresent());
+        assertTrue(reservationRepository.findById(reservation.getId()).isEmpty());
+    }
+
+    @Test
+    void confirm_ShouldThrowException_WhenReservationExpired() {
+        // Given
+        CouponReservation reservation = reservationService.reserve("HOLD", "user1", "192.168.1.1", "US");
+        reservation.setExpiresAt(Instant.now().minusSeconds(1));
+        reservationRepository.save(reservation);
+
+        // When & Then
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () ->
+            reservationService.confirm("HOLD", reservation.getId())
+        );
+        assertEquals("Reservation has expired", exception.getMessage());
+    }
+
+    @Test
+    void confirm_ShouldReleaseHold_WhenUserAlreadyUsedCoupon() {
+        // Given
+        Coupon coupon = couponRepository.findByCodeIgnoreCase("HOLD").orElseThrow();
+        coupon.setMaxUses(2);
+        couponRepository.save(coupon);
+        CouponReservation reservation = reservationService.reserve("HOLD", "user1", "192.168.1.1", "US");
+        couponService.useCoupon("HOLD", "user1", "192.168.1.1", "US");
+
+        // When & Then
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () ->
+            reservationService.confirm("HOLD", reservation.getId())
+        );
+        assertEquals("User has already used this coupon", exception.getMessage());
+        coupon = couponRepository.findByCodeIgnoreCase("HOLD").orElseThrow();
+        assertEquals(0, coupon.getReservedUses());
+        assertEquals(1, coupon.getCurrentUses());
+        assertTrue(reservationRepository.findById(reservation.getId()).isEmpty());
+    }
+
+    @Test
+    void release_ShouldReturnSlot() {
+        // Given
+        CouponReservation reservation = reservationService.reserve("HOLD", "user1", "192.168.1.1", "US");
+
+        // When
+        reservationService.release("HOLD", reservation.getId());
+
+        // Then
+        Coupon coupon = couponRepository.findByCodeIgnoreCase("HOLD").orElseThrow();
+        assertEquals(0, coupon.getReservedUses());
+        assertTrue(coupon.isAvailable());
+        couponService.useCoupon("HOLD", "user2", "192.168.1.1", "US");
+    }
+
+    @Test
+    void release_ShouldThrowException_WhenReservationBelongsToAnotherCoupon() {
+        // Given
+        couponRepository.save(new Coupon("OTHER", 5, "US"));
+        CouponReservation reservation = reservationService.reserve("HOLD", "user1", "192.168.1.1", "US");
+
+        // When & Then
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () ->
+            reservationService.release("OTHER", reservation.getId())
+        );
+        assertEquals("Reservation not found", exception.getMessage());
+    }
+
+    @Test
+    void expire_ShouldReleaseExpiredReservation() {
+        // Given
+        CouponReservation reservation = reservationService.reserve("HOLD", "user1", "192.168.1.1", "US");
+        reservation.setExpiresAt(Instant.now().minusSeconds(1));
+        reservationRepository.save(reservation);
+
+        // When
+        boolean released = reservationService.expire(reservation.getId());
+
+        // Then
+        assertTrue(released);
+        Coupon coupon = couponRepository.findByCodeIgnoreCase("HOLD").orElseThrow();
+        assertEquals(0, coupon.getReservedUses());
+        assertTrue(reservationRepository.findById(reservation.getId()).isEmpty());
+    }
+
+    @Test
+    void expire_ShouldKeepReservationThatHasNotExpired() {
+        // Given
+        CouponReservation reservation = reservationService.reserve("HOLD", "user1", "192.168.1.1", "US");
+
+        // When
+        boolean released = reservationService.expire(reservation.getId());
+
+        // Then
+        assertFalse(released);
+        assertTrue(reservationRepository.findById(reservation.getId()).isPresent());
+    }
+}
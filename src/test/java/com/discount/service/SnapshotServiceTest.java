@@ -0,0 +1,204 @@
+package com.discount.service;
+
+import com.discount.dto.UserCouponUsage;
+import com.discount.model.CountryMode;
+import com.discount.model.Coupon;
+import com.discount.repository.ArchivedCouponRepository;
+import com.discount.repository.ArchivedCouponUsageRepository;
+import com.discount.repository.CouponRepository;
+import com.discount.repository.CouponUsageRepository;
+import com.discount.service.SnapshotService.SnapshotInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Not transactional: restore loads blocks on its own threads
+@SpringBootTest
+@ActiveProfiles("test")
+class SnapshotServiceTest {
+
+    @TempDir
+    static Path snapshotDirectory;
+
+    @DynamicPropertySource
+    static void snapshotProperties(DynamicPropertyRegistry registry) {
+        registry.add("coupon.snapshot.directory", snapshotDirectory::toString);
+    }
+
+    @Autowired
+    private SnapshotService snapshotService;
+
+    @Autowired
+    private CouponService couponService;
+
+    @Autowired
+    private CouponArchiver couponArchiver;
+
+    @Autowired
+    private CouponRepository couponRepository;
+
+    @Autowired
+    private CouponUsageRepository couponUsageRepository;
+
+    @Autowired
+    private ArchivedCouponRepository archivedCouponRepository;
+
+    @Autowired
+    private ArchivedCouponUsageRepository archivedCouponUsageRepository;
+
+    @BeforeEach
+    void setUp() {
+        clearDatabase();
+    }
+
+    @Test
+    void restore_ShouldRecreateCouponsAndUsages() {
+        // Given
+        LocalDateTime validUntil = LocalDateTime.now().plusDays(30).withNano(123_456_000);
+        Coupon europe = couponService.createCoupon("EUROPE", 100, CountryMode.ALLOW, List.of("DE", "FR"), null, validUntil);
+        Coupon us = couponService.createCoupon("USONLY", 5, "US");
+        for (int i = 0; i < 50; i++) {
+            couponService.useCoupon("EUROPE", "user" + i, "192.168.1.1", "DE");
+        }
+        couponService.useCoupon("USONLY", "user1", "192.168.1.1", "US");
+        SnapshotInfo exported = snapshotService.export("full");
+        clearDatabase();
+
+        // When
+        SnapshotInfo restored = snapshotService.restore("full");
+
+        // Then
+        assertEquals(2, exported.coupons());
+        assertEquals(51, exported.usages());
+        assertEquals(exported.coupons(), restored.coupons());
+        assertEquals(exported.usages(), restored.usages());
+        Coupon restoredEurope = couponRepository.findById(europe.getId()).orElseThrow();
+        assertEquals("EUROPE", restoredEurope.getCode());
+        assertEquals(50, restoredEurope.getCurrentUses());
+        assertEquals(validUntil, restoredEurope.getValidUntil());
+        assertTrue(restoredEurope.isValidForCountry("FR"));
+        assertFalse(restoredEurope.isValidForCountry("US"));
+        assertEquals(51, couponUsageRepository.count());
+        assertThrows(IllegalStateException.class, () ->
+            couponService.useCoupon("USONLY", "user1", "192.168.1.1", "US")
+        );
+        Coupon created = couponService.createCoupon("AFTER", 5, "US");
+        assertTrue(created.getId() > Math.max(europe.getId(), us.getId()));
+    }
+
+    @Test
+    void restore_ShouldRecreateArchivedCouponsAndUsages() {
+        // Given
+        Coupon old = couponService.createCoupon("OLD", 1, "US");
+        couponService.useCoupon("OLD", "user1", "192.168.1.1", "US");
+        assertEquals(1, couponArchiver.archive());
+        couponService.createCoupon("LIVE", 2, "US");
+        couponService.useCoupon("LIVE", "user1", "192.168.1.1", "US");
+        SnapshotInfo exported = snapshotService.export("archived");
+        clearDatabase();
+
+        // When
+        SnapshotInfo restored = snapshotService.restore("archived");
+
+        // Then
+        assertEquals(1, exported.archivedCoupons());
+        assertEquals(1, exported.archivedUsages());
+        assertEquals(1, restored.archivedCoupons());
+        assertEquals(1, restored.archivedUsages());
+        assertEquals("OLD", couponService.getCouponByCode("old").code());
+        assertEquals(1, archivedCouponUsageRepository.countByCouponId(old.getId()));
+        assertThrows(IllegalStateException.class, () -> couponService.createCoupon("OLD", 1, "US"));
+        assertEquals(List.of("LIVE", "OLD"), couponService.getUserCouponHistory("user1", null, 10).items().stream()
+            .map(UserCouponUsage::code)
+            .toList());
+        // Restored live usages can be archived next to the restored archived ones
+        couponService.useCoupon("LIVE", "user2", "192.168.1.1", "US");
+        assertEquals(1, couponArchiver.archive());
+        assertEquals(3, archivedCouponUsageRepository.count());
+    }
+
+    @Test
+    void restore_ShouldEmptyDatabaseAgain_WhenItFailsPartWay() throws Exception {
+        // Given
+        couponService.createCoupon("OLD", 1, "US");
+        couponService.useCoupon("OLD", "user1", "192.168.1.1", "US");
+        couponArchiver.archive();
+        couponService.createCoupon("LIVE", 5, "US");
+        snapshotService.export("good");
+        Path broken = snapshotDirectory.resolve("broken.snap");
+        Files.copy(snapshotDirectory.resolve("good.snap"), broken);
+        clearDatabase();
+        try (FileChannel channel = FileChannel.open(broken, StandardOpenOption.WRITE)) {
+            // Inside the last record block, which is only loaded after the coupons; the end block is 45 bytes
+            channel.write(ByteBuffer.wrap(new byte[] {0x7F}), channel.size() - 45 - 5);
+        }
+
+        // When
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> snapshotService.restore("broken"));
+
+        // Then
+        assertTrue(exception.getMessage().contains("corrupt"));
+        assertEquals(0, couponRepository.count());
+        assertEquals(0, archivedCouponRepository.count());
+        SnapshotInfo retried = snapshotService.restore("good");
+        assertEquals(1, retried.coupons());
+        assertEquals(1, retried.archivedCoupons());
+    }
+
+    @Test
+    void restore_ShouldRejectNonEmptyDatabase() {
+        // Given
+        couponService.createCoupon("KEEP", 5, "US");
+        snapshotService.export("busy");
+
+        // When & Then
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> snapshotService.restore("busy"));
+        assertEquals("Snapshots can only be restored into an empty database", exception.getMessage());
+    }
+
+    @Test
+    void restore_ShouldRejectCorruptSnapshot() throws Exception {
+        // Given
+        couponService.createCoupon("CORRUPT", 5, "US");
+        snapshotService.export("corrupt");
+        clearDatabase();
+        try (FileChannel channel = FileChannel.open(snapshotDirectory.resolve("corrupt.snap"), StandardOpenOption.WRITE)) {
+            // First byte of the first coupon record, just past the file and block headers
+            channel.write(ByteBuffer.wrap(new byte[] {0x7F}), 16 + 9);
+        }
+
+        // When & Then
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> snapshotService.restore("corrupt"));
+        assertTrue(exception.getMessage().contains("corrupt"));
+        assertEquals(0, couponRepository.count());
+    }
+
+    @Test
+    void snapshotNames_ShouldNotEscapeSnapshotDirectory() {
+        assertThrows(IllegalArgumentException.class, () -> snapshotService.export("../outside"));
+        assertThrows(IllegalArgumentException.class, () -> snapshotService.restore("/etc/passwd"));
+        assertThrows(IllegalArgumentException.class, () -> snapshotService.restore("missing"));
+    }
+
+    private void clearDatabase() {
+        archivedCouponUsageRepository.deleteAll();
+        archivedCouponRepository.deleteAll();
+        couponUsageRepository.deleteAll();
+        couponRepository.deleteAll();
+    }
+}
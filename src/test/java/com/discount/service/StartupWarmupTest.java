@@ -0,0 +1,55 @@
+package com.discount.service;
+
+import com.discount.model.Coupon;
+import com.discount.repository.CouponRepository;
+import com.discount.repository.CouponUsageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"coupon.warmup.enabled=true", "coupon.warmup.iterations=5"})
+@ActiveProfiles("test")
+class StartupWarmupTest {
+
+    @Autowired
+    private StartupWarmup startupWarmup;
+
+    @Autowired
+    private CouponMetadataCache metadataCache;
+
+    @Autowired
+    private CouponRepository couponRepository;
+
+    @Autowired
+    private CouponUsageRepository couponUsageRepository;
+
+    @BeforeEach
+    void setUp() {
+        couponUsageRepository.deleteAll();
+        couponRepository.deleteAll();
+    }
+
+    @Test
+    void run_ShouldPreloadActiveCouponsAndLeaveNoTrace() {
+        // Given
+        couponRepository.save(new Coupon("WARM", 10, "US"));
+        Coupon exhausted = new Coupon("COLD", 1, "US");
+        exhausted.setCurrentUses(1);
+        couponRepository.save(exhausted);
+        metadataCache.evict("WARM");
+        metadataCache.evict("COLD");
+
+        // When
+        startupWarmup.run(null);
+
+        // Then
+        assertTrue(metadataCache.get("WARM").isPresent());
+        assertTrue(metadataCache.get("COLD").isEmpty());
+        assertEquals(2, couponRepository.count());
+        assertEquals(0, couponUsageRepository.count());
+    }
+}
@@ -0,0 +1,112 @@
+package com.discount.service;
+
+import com.discount.model.Coupon;
+import com.discount.model.CouponUsageRollup.Granularity;
+import com.discount.repository.CouponRepository;
+import com.discount.repository.CouponUsageRepository;
+import com.discount.repository.CouponUsageRollupRepository;
+import com.discount.service.UsageRollupService.UsageAnalytics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Not transactional: rollups are only counted once a redemption has committed
+@SpringBootTest
+@ActiveProfiles("test")
+class UsageRollupServiceTest {
+
+    @Autowired
+    private UsageRollupService usageRollupService;
+
+    @Autowired
+    private CouponService couponService;
+
+    @Autowired
+    private CouponRepository couponRepository;
+
+    @Autowired
+    private CouponUsageRepository couponUsageRepository;
+
+    @Autowired
+    private CouponUsageRollupRepository rollupRepository;
+
+    @BeforeEach
+    void setUp() {
+        usageRollupService.flush();
+        rollupRepository.deleteAll();
+        couponUsageRepository.deleteAll();
+        couponRepository.deleteAll();
+        couponRepository.save(new Coupon("STATS", 10, null));
+    }
+
+    @Test
+    void getUsageAnalytics_ShouldCountRedemptionsPerCountry() {
+        // Given
+        couponService.useCoupon("STATS", "user1", "192.168.1.1", "US");
+        couponService.useCoupon("STATS", "user2", "192.168.1.1", "US");
+        couponService.useCoupon("STATS", "user3", "192.168.1.1", "DE");
+
+        // When
+        UsageAnalytics analytics = usageRollupService.getUsageAnalytics("stats", Granularity.HOUR, null, null);
+
+        // Then
+        assertEquals("STATS", analytics.code());
+        assertEquals(3, analytics.totalRedemptions());
+        assertEquals(2L, analytics.redemptionsByCountry().get("US"));
+        assertEquals(1L, analytics.redemptionsByCountry().get("DE"));
+        assertFalse(analytics.buckets().isEmpty());
+    }
+
+    @Test
+    void flush_ShouldPersistBufferedCountersAndKeepTotals() {
+        // Given
+        couponService.useCoupon("STATS", "user1", "192.168.1.1", "US");
+        couponService.useCoupon("STATS", "user2", "192.168.1.1", "US");
+
+        // When
+        usageRollupService.flush();
+        couponService.useCoupon("STATS", "user3", "192.168.1.1", "US");
+        usageRollupService.flush();
+
+        // Then
+        UsageAnalytics analytics = usageRollupService.getUsageAnalytics("STATS", Granularity.MINUTE, null, null);
+        assertEquals(3, analytics.totalRedemptions());
+        assertEquals(3L, rollupRepository.findAll().stream()
+            .filter(rollup -> rollup.getGranularity() == Granularity.MINUTE)
+            .mapToLong(rollup -> rollup.getRedemptions())
+            .sum());
+    }
+
+    @Test
+    void record_ShouldNotCountFailedRedemptions() {
+        // Given
+        couponService.useCoupon("STATS", "user1", "192.168.1.1", "US");
+
+        // When
+        assertThrows(IllegalStateException.class, () ->
+            couponService.useCoupon("STATS", "user1", "192.168.1.1", "US")
+        );
+
+        // Then
+        assertEquals(1, usageRollupService.getUsageAnalytics("STATS", Granularity.HOUR, null, null).totalRedemptions());
+    }
+
+    @Test
+    void getUsageAnalytics_ShouldThrowException_WhenRangeTooLarge() {
+        // Given
+        Instant to = Instant.now();
+        Instant from = to.minus(400, ChronoUnit.DAYS);
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () ->
+            usageRollupService.getUsageAnalytics("STATS", Granularity.HOUR, from, to)
+        );
+    }
+}
@@ -0,0 +1,173 @@
+package com.discount.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+// Compares the standard and compact usage layouts on a file-backed H2 database, using the same
+// tables and indexes Hibernate generates for them (without the foreign key to coupon).
+// Run with: mvn test -Dtest=UsageStorageBenchmarkTest -Dusage.benchmark=true [-Dusage.benchmark.rows=10000000]
+@EnabledIfSystemProperty(named = "usage.benchmark", matches = "true")
+class UsageStorageBenchmarkTest {
+    private static final int COUPONS = 1000;
+    private static final int COUPONS_PER_USER = 10;
+    private static final int BATCH_SIZE = 10_000;
+    // Coprime with any row count that is a multiple of COUPONS; spreads inserts over the key space
+    private static final long STRIDE = 1_000_003L;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void compareLayouts() throws Exception {
+        long rows = Long.getLong("usage.benchmark.rows", 10_000_000L) / COUPONS * COUPONS;
+        String[] users = new String[(int) (rows / COUPONS_PER_USER)];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = "user-" + UUID.randomUUID();
+        }
+
+        Result standard = measure("standard", rows, users, new String[] {
+            "CREATE TABLE coupon_usage (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+            "coupon_id BIGINT NOT NULL, used_at TIMESTAMP(6), user_id VARCHAR(255) NOT NULL, " +
+            "CONSTRAINT uk_coupon_usage UNIQUE (coupon_id, user_id))",
+            "CREATE INDEX idx_coupon_usage_user_used_at ON coupon_usage (user_id, used_at, coupon_id)"
+        }, this::insertStandard);
+        Result compact = measure("compact", rows, users, new String[] {
+            "CREATE TABLE usage_user (user_hash BIGINT PRIMARY KEY, user_id VARCHAR(255) NOT NULL UNIQUE)",
+            "CREATE TABLE coupon_usage_compact (coupon_id BIGINT NOT NULL, user_hash BIGINT NOT NULL, " +
+            "used_at BIGINT NOT NULL, PRIMARY KEY (coupon_id, user_hash))",
+            "CREATE INDEX idx_coupon_usage_compact_user_used_at ON coupon_usage_compact (user_hash, used_at, coupon_id)"
+        }, this::insertCompact);
+
+        System.out.printf("%,d usages, %,d users, %,d coupons%n", rows, users.length, COUPONS);
+        System.out.println(standard);
+        System.out.println(compact);
+    }
+
+    private Result measure(String layout, long rows, String[] users, String[] ddl, Loader loader) throws Exception {
+        Path file = directory.resolve(layout);
+        String url = "jdbc:h2:file:" + file + ";CACHE_SIZE=262144";
+        try (Connection connection = DriverManager.getConnection(url, "sa", "")) {
+            try (Statement statement = connection.createStatement()) {
+                for (String sql : ddl) {
+                    statement.execute(sql);
+                }
+            }
+            connection.setAutoCommit(false);
+            long start = System.nanoTime();
+            loader.load(connection, rows, users);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            connection.setAutoCommit(true);
+
+            long tableBytes = 0;
+            String[] tables = layout.equals("standard")
+                    ? new String[] {"COUPON_USAGE"} : new String[] {"COUPON_USAGE_COMPACT", "USAGE_USER"};
+            for (String table : tables) {
+                tableBytes += diskSpaceUsed(connection, table);
+            }
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SHUTDOWN COMPACT");
+            }
+            long fileBytes = Files.size(directory.resolve(layout + ".mv.db"));
+            return new Result(layout, rows / seconds, tableBytes, fileBytes);
+        }
+    }
+
+    private void insertStandard(Connection connection, long rows, String[] users) throws SQLException {
+        LocalDateTime base = LocalDateTime.now().minusYears(1);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO coupon_usage (coupon_id, user_id, used_at) VALUES (?, ?, ?)")) {
+            for (long i = 0; i < rows; i++) {
+                long usage = i * STRIDE % rows;
+                insert.setLong(1, couponOf(usage));
+                insert.setString(2, users[(int) (usage / COUPONS_PER_USER)]);
+                insert.setTimestamp(3, Timestamp.valueOf(base.plusSeconds(i)));
+                insert.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+            insert.executeBatch();
+            connection.commit();
+        }
+    }
+
+    // Includes interning every user, as the first redemption of each user does
+    private void insertCompact(Connection connection, long rows, String[] users) throws SQLException {
+        long[] hashes = new long[users.length];
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO usage_user (user_hash, user_id) VALUES (?, ?)")) {
+            for (int i = 0; i < users.length; i++) {
+                hashes[i] = CompactUsageStore.hash(users[i]);
+                insert.setLong(1, hashes[i]);
+                insert.setString(2, users[i]);
+                insert.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+            insert.executeBatch();
+            connection.commit();
+        }
+        long base = LocalDateTime.now().minusYears(1).toEpochSecond(ZoneOffset.UTC);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO coupon_usage_compact (coupon_id, user_hash, used_at) VALUES (?, ?, ?)")) {
+            for (long i = 0; i < rows; i++) {
+                long usage = i * STRIDE % rows;
+                insert.setLong(1, couponOf(usage));
+                insert.setLong(2, hashes[(int) (usage / COUPONS_PER_USER)]);
+                insert.setLong(3, base + i);
+                insert.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+            insert.executeBatch();
+            connection.commit();
+        }
+    }
+
+    // Each user redeems COUPONS_PER_USER distinct coupons
+    private static long couponOf(long usage) {
+        long user = usage / COUPONS_PER_USER;
+        return (usage % COUPONS_PER_USER) * (COUPONS / COUPONS_PER_USER) + user % (COUPONS / COUPONS_PER_USER);
+    }
+
+    private static long diskSpaceUsed(Connection connection, String table) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("SELECT DISK_SPACE_USED('" + table + "')")) {
+            result.next();
+            return result.getLong(1);
+        }
+    }
+
+    private interface Loader {
+        void load(Connection connection, long rows, String[] users) throws SQLException;
+    }
+
+    private record Result(String layout, double insertsPerSecond, long tableBytes, long fileBytes) {
+        @Override
+        public String toString() {
+            // DISK_SPACE_USED covers the primary index, i.e. the rows; the rest of the file is
+            // the secondary indexes and unique constraints
+            return String.format("%-8s %,12.0f inserts/s  rows %,6d MiB  secondary indexes %,6d MiB  total %,6d MiB",
+                    layout, insertsPerSecond, tableBytes >> 20, Math.max(fileBytes - tableBytes, 0) >> 20, fileBytes >> 20);
+        }
+    }
+}